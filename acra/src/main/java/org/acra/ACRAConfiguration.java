@@ -35,6 +35,32 @@ import static org.acra.ACRAConstants.DEFAULT_SOCKET_TIMEOUT;
 import static org.acra.ACRAConstants.DEFAULT_STRING_VALUE;
 import static org.acra.ACRAConstants.DEFAULT_GOOGLE_FORM_URL_FORMAT;
 import static org.acra.ACRAConstants.NULL_VALUE;
+import static org.acra.ACRAConstants.DEFAULT_COMPRESS_REPORT_FILES;
+import static org.acra.ACRAConstants.DEFAULT_SYNC_REPORT_FILES;
+import static org.acra.ACRAConstants.DEFAULT_JOURNAL_SILENT_REPORTS;
+import static org.acra.ACRAConstants.DEFAULT_JOURNAL_SEGMENT_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_MAX_JOURNAL_SEGMENTS;
+import static org.acra.ACRAConstants.DEFAULT_OOM_CRASH_AREA_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_COALESCE_DUPLICATE_REPORTS;
+import static org.acra.ACRAConstants.DEFAULT_MAX_PENDING_REPORTS;
+import static org.acra.ACRAConstants.DEFAULT_MAX_PENDING_REPORTS_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_PARALLEL_REPORT_SENDERS;
+import static org.acra.ACRAConstants.DEFAULT_SEND_RETRY_BASE_DELAY;
+import static org.acra.ACRAConstants.DEFAULT_SEND_RETRY_MAX_DELAY;
+import static org.acra.ACRAConstants.DEFAULT_MAX_REPORT_SEND_ATTEMPTS;
+import static org.acra.ACRAConstants.DEFAULT_MAX_REPORTS_SENT_PER_MINUTE;
+import static org.acra.ACRAConstants.DEFAULT_MAX_BYTES_SENT_PER_MINUTE;
+import static org.acra.ACRAConstants.DEFAULT_SEND_BURST_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_SEND_REPORTS_IN_BATCHES;
+import static org.acra.ACRAConstants.DEFAULT_MAX_REPORTS_PER_BATCH;
+import static org.acra.ACRAConstants.DEFAULT_MAX_BATCH_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+import static org.acra.ACRAConstants.DEFAULT_CIRCUIT_BREAKER_RESET_TIMEOUT;
+import static org.acra.ACRAConstants.DEFAULT_DEFERRED_SENDING;
+import static org.acra.ACRAConstants.DEFAULT_DEFERRED_SENDING_CHECK_INTERVAL;
+import static org.acra.ACRAConstants.DEFAULT_CRASH_SEND_DEADLINE;
+import static org.acra.ACRAConstants.DEFAULT_UPLOAD_CHUNK_SIZE;
+import static org.acra.ACRAConstants.DEFAULT_COMPRESS_HTTP_REQUESTS;
 
 import java.lang.annotation.Annotation;
 
@@ -92,6 +118,37 @@ public class ACRAConfiguration implements ReportsCrashes {
     private Integer mApplicationLogFileLines = null;
     
     private String mGoogleFormUrlFormat = null;
+    private ReportFileFormat mReportFileFormat = null;
+    private Boolean mCompressReportFiles = null;
+    private Boolean mSyncReportFiles = null;
+    private Boolean mJournalSilentReports = null;
+    private Integer mJournalSegmentSize = null;
+    private Integer mMaxJournalSegments = null;
+    private Integer mOomCrashAreaSize = null;
+    private Boolean mCoalesceDuplicateReports = null;
+    private Integer mMaxPendingReports = null;
+    private Long mMaxPendingReportsSize = null;
+    private Class<? extends ReportEvictionPolicy> mReportEvictionPolicy = null;
+    private Boolean mParallelReportSenders = null;
+    private Integer mSendRetryBaseDelay = null;
+    private Integer mSendRetryMaxDelay = null;
+    private Integer mMaxReportSendAttempts = null;
+    private Integer mMaxReportsSentPerMinute = null;
+    private Integer mMaxBytesSentPerMinute = null;
+    private Integer mSendBurstSize = null;
+    private Boolean mSendReportsInBatches = null;
+    private Integer mMaxReportsPerBatch = null;
+    private Integer mMaxBatchSize = null;
+    private Integer mCircuitBreakerFailureThreshold = null;
+    private Integer mCircuitBreakerResetTimeout = null;
+    private ReportSendOrder mReportSendOrder = null;
+    private Boolean mDeferredSending = null;
+    private Integer mDeferredSendingCheckInterval = null;
+    private Integer mCrashSendDeadline = null;
+    private Integer mUploadChunkSize = null;
+    private Boolean mCompressHttpRequests = null;
+    private HttpReportFormat mFormUriReportFormat = null;
+    private HttpTransportType mHttpTransport = null;
 
     /**
      * @param additionalDropboxTags
@@ -460,6 +517,277 @@ public class ACRAConfiguration implements ReportsCrashes {
         mApplicationLogFileLines = applicationLogFileLines;
     }
 
+    /**
+     * @param reportFileFormat
+     *            the format used to write new report files. Existing
+     *            reports are read whatever their format.
+     */
+    public void setReportFileFormat(ReportFileFormat reportFileFormat) {
+        mReportFileFormat = reportFileFormat;
+    }
+
+    /**
+     * @param compressReportFiles
+     *            true if report files have to be gzip compressed.
+     */
+    public void setCompressReportFiles(Boolean compressReportFiles) {
+        mCompressReportFiles = compressReportFiles;
+    }
+
+    /**
+     * @param syncReportFiles
+     *            true if report files have to be synced to the storage
+     *            device before being renamed to their final name.
+     */
+    public void setSyncReportFiles(Boolean syncReportFiles) {
+        mSyncReportFiles = syncReportFiles;
+    }
+
+    /**
+     * @param journalSilentReports
+     *            true if silent reports have to be appended to the reports
+     *            journal instead of being written to their own file.
+     */
+    public void setJournalSilentReports(Boolean journalSilentReports) {
+        mJournalSilentReports = journalSilentReports;
+    }
+
+    /**
+     * @param journalSegmentSize
+     *            the size in bytes above which a new journal segment is
+     *            started.
+     */
+    public void setJournalSegmentSize(Integer journalSegmentSize) {
+        mJournalSegmentSize = journalSegmentSize;
+    }
+
+    /**
+     * @param maxJournalSegments
+     *            the maximum number of journal segments kept.
+     */
+    public void setMaxJournalSegments(Integer maxJournalSegments) {
+        mMaxJournalSegments = maxJournalSegments;
+    }
+
+    /**
+     * @param oomCrashAreaSize
+     *            the size in bytes of the OutOfMemoryError crash area, 0 to
+     *            disable it.
+     */
+    public void setOomCrashAreaSize(Integer oomCrashAreaSize) {
+        mOomCrashAreaSize = oomCrashAreaSize;
+    }
+
+    /**
+     * @param coalesceDuplicateReports
+     *            true if a crash occurring again while its report is
+     *            pending has to be counted in that report.
+     */
+    public void setCoalesceDuplicateReports(Boolean coalesceDuplicateReports) {
+        mCoalesceDuplicateReports = coalesceDuplicateReports;
+    }
+
+    /**
+     * @param maxPendingReports
+     *            the maximum number of pending reports, 0 for no limit.
+     */
+    public void setMaxPendingReports(Integer maxPendingReports) {
+        mMaxPendingReports = maxPendingReports;
+    }
+
+    /**
+     * @param maxPendingReportsSize
+     *            the maximum total size in bytes of the pending reports, 0
+     *            for no limit.
+     */
+    public void setMaxPendingReportsSize(Long maxPendingReportsSize) {
+        mMaxPendingReportsSize = maxPendingReportsSize;
+    }
+
+    /**
+     * @param reportEvictionPolicy
+     *            the class of the policy ordering the pending reports to
+     *            delete when there are too many of them.
+     */
+    public void setReportEvictionPolicy(Class<? extends ReportEvictionPolicy> reportEvictionPolicy) {
+        mReportEvictionPolicy = reportEvictionPolicy;
+    }
+
+    /**
+     * @param parallelReportSenders
+     *            true if each report has to be sent to all report senders
+     *            at once.
+     */
+    public void setParallelReportSenders(Boolean parallelReportSenders) {
+        mParallelReportSenders = parallelReportSenders;
+    }
+
+    /**
+     * @param sendRetryBaseDelay
+     *            the delay in milliseconds after a first failed attempt to
+     *            send a report, 0 to disable backoff.
+     */
+    public void setSendRetryBaseDelay(Integer sendRetryBaseDelay) {
+        mSendRetryBaseDelay = sendRetryBaseDelay;
+    }
+
+    /**
+     * @param sendRetryMaxDelay
+     *            the maximum delay in milliseconds between two attempts to
+     *            send a report.
+     */
+    public void setSendRetryMaxDelay(Integer sendRetryMaxDelay) {
+        mSendRetryMaxDelay = sendRetryMaxDelay;
+    }
+
+    /**
+     * @param maxReportSendAttempts
+     *            the number of failed attempts after which a report is
+     *            abandoned, 0 for no limit.
+     */
+    public void setMaxReportSendAttempts(Integer maxReportSendAttempts) {
+        mMaxReportSendAttempts = maxReportSendAttempts;
+    }
+
+    /**
+     * @param maxReportsSentPerMinute
+     *            the maximum number of reports sent per minute, 0 for no
+     *            limit.
+     */
+    public void setMaxReportsSentPerMinute(Integer maxReportsSentPerMinute) {
+        mMaxReportsSentPerMinute = maxReportsSentPerMinute;
+    }
+
+    /**
+     * @param maxBytesSentPerMinute
+     *            the maximum number of report bytes sent per minute, 0 for
+     *            no limit.
+     */
+    public void setMaxBytesSentPerMinute(Integer maxBytesSentPerMinute) {
+        mMaxBytesSentPerMinute = maxBytesSentPerMinute;
+    }
+
+    /**
+     * @param sendBurstSize
+     *            the maximum number of reports sent in a burst.
+     */
+    public void setSendBurstSize(Integer sendBurstSize) {
+        mSendBurstSize = sendBurstSize;
+    }
+
+    /**
+     * @param sendReportsInBatches
+     *            true if reports should be posted in batches to the
+     *            formUri.
+     */
+    public void setSendReportsInBatches(Boolean sendReportsInBatches) {
+        mSendReportsInBatches = sendReportsInBatches;
+    }
+
+    /**
+     * @param maxReportsPerBatch
+     *            the maximum number of reports sent in one batch.
+     */
+    public void setMaxReportsPerBatch(Integer maxReportsPerBatch) {
+        mMaxReportsPerBatch = maxReportsPerBatch;
+    }
+
+    /**
+     * @param maxBatchSize
+     *            the maximum size in bytes of the reports sent in one
+     *            batch.
+     */
+    public void setMaxBatchSize(Integer maxBatchSize) {
+        mMaxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @param circuitBreakerFailureThreshold
+     *            the number of failures in a row after which a sender is
+     *            skipped, 0 to always call the senders.
+     */
+    public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+        mCircuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * @param circuitBreakerResetTimeout
+     *            the time in milliseconds during which a failing sender is
+     *            skipped.
+     */
+    public void setCircuitBreakerResetTimeout(Integer circuitBreakerResetTimeout) {
+        mCircuitBreakerResetTimeout = circuitBreakerResetTimeout;
+    }
+
+    /**
+     * @param reportSendOrder
+     *            the order in which pending reports are sent.
+     */
+    public void setReportSendOrder(ReportSendOrder reportSendOrder) {
+        mReportSendOrder = reportSendOrder;
+    }
+
+    /**
+     * @param deferredSending
+     *            true if full reports should wait for a Wi-Fi network or a
+     *            charger.
+     */
+    public void setDeferredSending(Boolean deferredSending) {
+        mDeferredSending = deferredSending;
+    }
+
+    /**
+     * @param deferredSendingCheckInterval
+     *            the interval in milliseconds between two checks of
+     *            whether deferred reports can be sent.
+     */
+    public void setDeferredSendingCheckInterval(Integer deferredSendingCheckInterval) {
+        mDeferredSendingCheckInterval = deferredSendingCheckInterval;
+    }
+
+    /**
+     * @param crashSendDeadline
+     *            the maximum time in milliseconds spent sending reports
+     *            after a crash, 0 for no limit.
+     */
+    public void setCrashSendDeadline(Integer crashSendDeadline) {
+        mCrashSendDeadline = crashSendDeadline;
+    }
+
+    /**
+     * @param uploadChunkSize
+     *            the size in bytes of the chunks of a report upload, 0 to
+     *            post reports in a single request.
+     */
+    public void setUploadChunkSize(Integer uploadChunkSize) {
+        mUploadChunkSize = uploadChunkSize;
+    }
+
+    /**
+     * @param compressHttpRequests
+     *            true if reports posted to the formUri should be
+     *            compressed with gzip.
+     */
+    public void setCompressHttpRequests(Boolean compressHttpRequests) {
+        mCompressHttpRequests = compressHttpRequests;
+    }
+
+    /**
+     * @param formUriReportFormat
+     *            the format of the reports posted to the formUri.
+     */
+    public void setFormUriReportFormat(HttpReportFormat formUriReportFormat) {
+        mFormUriReportFormat = formUriReportFormat;
+    }
+
+    /**
+     * @param httpTransport
+     *            the HTTP client library posting reports.
+     */
+    public void setHttpTransport(HttpTransportType httpTransport) {
+        mHttpTransport = httpTransport;
+    }
+
     /**
      * 
      * @param defaults
@@ -959,4 +1287,407 @@ public class ACRAConfiguration implements ReportsCrashes {
 
         return DEFAULT_GOOGLE_FORM_URL_FORMAT;
     }
+
+    @Override
+    public ReportFileFormat reportFileFormat() {
+        if (mReportFileFormat != null) {
+            return mReportFileFormat;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.reportFileFormat();
+        }
+
+        return ReportFileFormat.TEXT;
+    }
+
+    @Override
+    public boolean compressReportFiles() {
+        if (mCompressReportFiles != null) {
+            return mCompressReportFiles;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.compressReportFiles();
+        }
+
+        return DEFAULT_COMPRESS_REPORT_FILES;
+    }
+
+    @Override
+    public boolean syncReportFiles() {
+        if (mSyncReportFiles != null) {
+            return mSyncReportFiles;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.syncReportFiles();
+        }
+
+        return DEFAULT_SYNC_REPORT_FILES;
+    }
+
+    @Override
+    public boolean journalSilentReports() {
+        if (mJournalSilentReports != null) {
+            return mJournalSilentReports;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.journalSilentReports();
+        }
+
+        return DEFAULT_JOURNAL_SILENT_REPORTS;
+    }
+
+    @Override
+    public int journalSegmentSize() {
+        if (mJournalSegmentSize != null) {
+            return mJournalSegmentSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.journalSegmentSize();
+        }
+
+        return DEFAULT_JOURNAL_SEGMENT_SIZE;
+    }
+
+    @Override
+    public int maxJournalSegments() {
+        if (mMaxJournalSegments != null) {
+            return mMaxJournalSegments;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxJournalSegments();
+        }
+
+        return DEFAULT_MAX_JOURNAL_SEGMENTS;
+    }
+
+    @Override
+    public int oomCrashAreaSize() {
+        if (mOomCrashAreaSize != null) {
+            return mOomCrashAreaSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.oomCrashAreaSize();
+        }
+
+        return DEFAULT_OOM_CRASH_AREA_SIZE;
+    }
+
+    @Override
+    public boolean coalesceDuplicateReports() {
+        if (mCoalesceDuplicateReports != null) {
+            return mCoalesceDuplicateReports;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.coalesceDuplicateReports();
+        }
+
+        return DEFAULT_COALESCE_DUPLICATE_REPORTS;
+    }
+
+    @Override
+    public int maxPendingReports() {
+        if (mMaxPendingReports != null) {
+            return mMaxPendingReports;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxPendingReports();
+        }
+
+        return DEFAULT_MAX_PENDING_REPORTS;
+    }
+
+    @Override
+    public long maxPendingReportsSize() {
+        if (mMaxPendingReportsSize != null) {
+            return mMaxPendingReportsSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxPendingReportsSize();
+        }
+
+        return DEFAULT_MAX_PENDING_REPORTS_SIZE;
+    }
+
+    @Override
+    public Class<? extends ReportEvictionPolicy> reportEvictionPolicy() {
+        if (mReportEvictionPolicy != null) {
+            return mReportEvictionPolicy;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.reportEvictionPolicy();
+        }
+
+        return ReportEvictionPolicy.OldestFirst.class;
+    }
+
+    @Override
+    public boolean parallelReportSenders() {
+        if (mParallelReportSenders != null) {
+            return mParallelReportSenders;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.parallelReportSenders();
+        }
+
+        return DEFAULT_PARALLEL_REPORT_SENDERS;
+    }
+
+    @Override
+    public int sendRetryBaseDelay() {
+        if (mSendRetryBaseDelay != null) {
+            return mSendRetryBaseDelay;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.sendRetryBaseDelay();
+        }
+
+        return DEFAULT_SEND_RETRY_BASE_DELAY;
+    }
+
+    @Override
+    public int sendRetryMaxDelay() {
+        if (mSendRetryMaxDelay != null) {
+            return mSendRetryMaxDelay;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.sendRetryMaxDelay();
+        }
+
+        return DEFAULT_SEND_RETRY_MAX_DELAY;
+    }
+
+    @Override
+    public int maxReportSendAttempts() {
+        if (mMaxReportSendAttempts != null) {
+            return mMaxReportSendAttempts;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxReportSendAttempts();
+        }
+
+        return DEFAULT_MAX_REPORT_SEND_ATTEMPTS;
+    }
+
+    @Override
+    public int maxReportsSentPerMinute() {
+        if (mMaxReportsSentPerMinute != null) {
+            return mMaxReportsSentPerMinute;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxReportsSentPerMinute();
+        }
+
+        return DEFAULT_MAX_REPORTS_SENT_PER_MINUTE;
+    }
+
+    @Override
+    public int maxBytesSentPerMinute() {
+        if (mMaxBytesSentPerMinute != null) {
+            return mMaxBytesSentPerMinute;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxBytesSentPerMinute();
+        }
+
+        return DEFAULT_MAX_BYTES_SENT_PER_MINUTE;
+    }
+
+    @Override
+    public int sendBurstSize() {
+        if (mSendBurstSize != null) {
+            return mSendBurstSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.sendBurstSize();
+        }
+
+        return DEFAULT_SEND_BURST_SIZE;
+    }
+
+    @Override
+    public boolean sendReportsInBatches() {
+        if (mSendReportsInBatches != null) {
+            return mSendReportsInBatches;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.sendReportsInBatches();
+        }
+
+        return DEFAULT_SEND_REPORTS_IN_BATCHES;
+    }
+
+    @Override
+    public int maxReportsPerBatch() {
+        if (mMaxReportsPerBatch != null) {
+            return mMaxReportsPerBatch;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxReportsPerBatch();
+        }
+
+        return DEFAULT_MAX_REPORTS_PER_BATCH;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        if (mMaxBatchSize != null) {
+            return mMaxBatchSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.maxBatchSize();
+        }
+
+        return DEFAULT_MAX_BATCH_SIZE;
+    }
+
+    @Override
+    public int circuitBreakerFailureThreshold() {
+        if (mCircuitBreakerFailureThreshold != null) {
+            return mCircuitBreakerFailureThreshold;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.circuitBreakerFailureThreshold();
+        }
+
+        return DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    }
+
+    @Override
+    public int circuitBreakerResetTimeout() {
+        if (mCircuitBreakerResetTimeout != null) {
+            return mCircuitBreakerResetTimeout;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.circuitBreakerResetTimeout();
+        }
+
+        return DEFAULT_CIRCUIT_BREAKER_RESET_TIMEOUT;
+    }
+
+    @Override
+    public ReportSendOrder reportSendOrder() {
+        if (mReportSendOrder != null) {
+            return mReportSendOrder;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.reportSendOrder();
+        }
+
+        return ReportSendOrder.PRIORITY;
+    }
+
+    @Override
+    public boolean deferredSending() {
+        if (mDeferredSending != null) {
+            return mDeferredSending;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.deferredSending();
+        }
+
+        return DEFAULT_DEFERRED_SENDING;
+    }
+
+    @Override
+    public int deferredSendingCheckInterval() {
+        if (mDeferredSendingCheckInterval != null) {
+            return mDeferredSendingCheckInterval;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.deferredSendingCheckInterval();
+        }
+
+        return DEFAULT_DEFERRED_SENDING_CHECK_INTERVAL;
+    }
+
+    @Override
+    public int crashSendDeadline() {
+        if (mCrashSendDeadline != null) {
+            return mCrashSendDeadline;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.crashSendDeadline();
+        }
+
+        return DEFAULT_CRASH_SEND_DEADLINE;
+    }
+
+    @Override
+    public int uploadChunkSize() {
+        if (mUploadChunkSize != null) {
+            return mUploadChunkSize;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.uploadChunkSize();
+        }
+
+        return DEFAULT_UPLOAD_CHUNK_SIZE;
+    }
+
+    @Override
+    public boolean compressHttpRequests() {
+        if (mCompressHttpRequests != null) {
+            return mCompressHttpRequests;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.compressHttpRequests();
+        }
+
+        return DEFAULT_COMPRESS_HTTP_REQUESTS;
+    }
+
+    @Override
+    public HttpReportFormat formUriReportFormat() {
+        if (mFormUriReportFormat != null) {
+            return mFormUriReportFormat;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.formUriReportFormat();
+        }
+
+        return HttpReportFormat.FORM;
+    }
+
+    @Override
+    public HttpTransportType httpTransport() {
+        if (mHttpTransport != null) {
+            return mHttpTransport;
+        }
+
+        if (mReportsCrashes != null) {
+            return mReportsCrashes.httpTransport();
+        }
+
+        return HttpTransportType.APACHE_HTTP_CLIENT;
+    }
 }
@@ -29,6 +29,12 @@ public final class ACRAConstants {
 
     public static final String REPORTFILE_EXTENSION = ".stacktrace";
 
+    /**
+     * Suffix added to a report file name while it is being written. The file
+     * is renamed to its final name only once completely written.
+     */
+    static final String PARTIAL_REPORTFILE_SUFFIX = ".tmp";
+
     /**
      * Suffix to be added to report files when they have been approved by the
      * user in NOTIFICATION mode
@@ -40,10 +46,17 @@ public final class ACRAConstants {
      */
     static final String SILENT_SUFFIX = "-" + IS_SILENT;
     /**
-     * This is the number of previously stored reports that we send in {@link SendWorker#checkAndSendReports(android.content.Context, boolean)}.
-     * The number of reports is limited to avoid ANR on application start.
+     * Maximum number of ReportSenders called at once for the same report when
+     * {@link org.acra.annotation.ReportsCrashes#parallelReportSenders()} is
+     * enabled.
+     */
+    static final int MAX_PARALLEL_REPORT_SENDERS = 4;
+    /**
+     * Report files up to this size are loaded in memory before being sent,
+     * even to StreamingReportSenders, so that their requests can be sent
+     * again. Larger reports are streamed from their file.
      */
-    static final int MAX_SEND_REPORTS = 5;
+    static final int MAX_BUFFERED_REPORT_SIZE = 256 * 1024;
     /**
      * Used in the intent starting CrashReportDialog to provide the name of the
      * latest generated report file in order to be able to associate the user
@@ -104,4 +117,56 @@ public final class ACRAConstants {
     public static final int DEFAULT_APPLICATION_LOGFILE_LINES = DEFAULT_LOGCAT_LINES;
     
     public static final String DEFAULT_GOOGLE_FORM_URL_FORMAT = "https://docs.google.com/spreadsheet/formResponse?formkey=%s&ifq";
+
+    public static final boolean DEFAULT_COMPRESS_REPORT_FILES = false;
+
+    public static final boolean DEFAULT_SYNC_REPORT_FILES = true;
+
+    public static final boolean DEFAULT_JOURNAL_SILENT_REPORTS = false;
+
+    public static final int DEFAULT_JOURNAL_SEGMENT_SIZE = 256 * 1024;
+
+    public static final int DEFAULT_MAX_JOURNAL_SEGMENTS = 4;
+
+    public static final int DEFAULT_OOM_CRASH_AREA_SIZE = 0;
+
+    public static final boolean DEFAULT_COALESCE_DUPLICATE_REPORTS = false;
+
+    public static final int DEFAULT_MAX_PENDING_REPORTS = 0;
+
+    public static final long DEFAULT_MAX_PENDING_REPORTS_SIZE = 0;
+
+    public static final boolean DEFAULT_PARALLEL_REPORT_SENDERS = false;
+
+    public static final int DEFAULT_SEND_RETRY_BASE_DELAY = 30 * 1000;
+
+    public static final int DEFAULT_SEND_RETRY_MAX_DELAY = 6 * 60 * 60 * 1000;
+
+    public static final int DEFAULT_MAX_REPORT_SEND_ATTEMPTS = 0;
+
+    public static final int DEFAULT_MAX_REPORTS_SENT_PER_MINUTE = 5;
+
+    public static final int DEFAULT_MAX_BYTES_SENT_PER_MINUTE = 0;
+
+    public static final int DEFAULT_SEND_BURST_SIZE = 5;
+
+    public static final boolean DEFAULT_SEND_REPORTS_IN_BATCHES = false;
+
+    public static final int DEFAULT_MAX_REPORTS_PER_BATCH = 20;
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256 * 1024;
+
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+
+    public static final int DEFAULT_CIRCUIT_BREAKER_RESET_TIMEOUT = 10 * 60 * 1000;
+
+    public static final boolean DEFAULT_DEFERRED_SENDING = false;
+
+    public static final int DEFAULT_DEFERRED_SENDING_CHECK_INTERVAL = 15 * 60 * 1000;
+
+    public static final int DEFAULT_CRASH_SEND_DEADLINE = 0;
+
+    public static final int DEFAULT_UPLOAD_CHUNK_SIZE = 0;
+
+    public static final boolean DEFAULT_COMPRESS_HTTP_REQUESTS = false;
 }
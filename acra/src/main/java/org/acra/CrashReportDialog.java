@@ -147,10 +147,10 @@ public final class CrashReportDialog extends Activity {
                 final CrashReportPersister persister = new CrashReportPersister(getApplicationContext());
                 try {
                     Log.d(LOG_TAG, "Add user comment to " + mReportFileName);
-                    final CrashReportData crashData = persister.load(mReportFileName);
-                    crashData.put(USER_COMMENT, comment);
-                    crashData.put(USER_EMAIL, usrEmail);
-                    persister.store(crashData, mReportFileName);
+                    final CrashReportData userData = new CrashReportData();
+                    userData.put(USER_COMMENT, comment);
+                    userData.put(USER_EMAIL, usrEmail);
+                    persister.update(userData, mReportFileName);
                 } catch (IOException e) {
                     Log.w(LOG_TAG, "User comment not added: ", e);
                 }
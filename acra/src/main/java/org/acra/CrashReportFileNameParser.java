@@ -49,4 +49,23 @@ final class CrashReportFileNameParser {
     public boolean isApproved(String reportFileName) {
         return isSilent(reportFileName) || reportFileName.contains(ACRAConstants.APPROVED_SUFFIX);
     }
+
+    /**
+     * Retrieves the creation time of a report from its file name, which starts
+     * with the report creation timestamp.
+     *
+     * @param reportFileName    Name of the report.
+     * @return The report creation time in milliseconds, or 0 if the file name does not start with a timestamp.
+     */
+    public long getTimestamp(String reportFileName) {
+        int end = 0;
+        while (end < reportFileName.length() && Character.isDigit(reportFileName.charAt(end))) {
+            end++;
+        }
+        try {
+            return end == 0 ? 0 : Long.parseLong(reportFileName.substring(0, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 }
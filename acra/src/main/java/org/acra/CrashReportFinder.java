@@ -43,6 +43,24 @@ final class CrashReportFinder {
      * @return an array containing the names of pending crash report files.
      */
     public String[] getCrashReportFiles() {
+        return getFiles(ACRAConstants.REPORTFILE_EXTENSION);
+    }
+
+    /**
+     * Returns the names of pending report files and of report files whose
+     * writing has not been completed, with a single listing of the application
+     * files directory. Partial report files have been left behind by a process
+     * which died while writing a report.
+     *
+     * @return an array containing the names of pending and partially written
+     *         crash report files.
+     */
+    public String[] getAllReportFiles() {
+        return getFiles(ACRAConstants.REPORTFILE_EXTENSION, ACRAConstants.REPORTFILE_EXTENSION
+                + ACRAConstants.PARTIAL_REPORTFILE_SUFFIX);
+    }
+
+    private String[] getFiles(String... extensions) {
         if (context == null) {
             Log.e(LOG_TAG, "Trying to get ACRA reports but ACRA is not initialized.");
             return new String[0];
@@ -55,11 +73,27 @@ final class CrashReportFinder {
         }
 
         Log.d(LOG_TAG, "Looking for error files in " + dir.getAbsolutePath());
+        return list(dir, extensions);
+    }
 
+    /**
+     * @param dir
+     *            Directory holding the report files.
+     * @param extensions
+     *            Suffixes of the listed file names.
+     * @return The names of the files of the directory ending with one of the
+     *         extensions.
+     */
+    static String[] list(File dir, final String... extensions) {
         // Filter for ".stacktrace" files
         final FilenameFilter filter = new FilenameFilter() {
             public boolean accept(File dir, String name) {
-                return name.endsWith(ACRAConstants.REPORTFILE_EXTENSION);
+                for (String extension : extensions) {
+                    if (name.endsWith(extension)) {
+                        return true;
+                    }
+                }
+                return false;
             }
         };
         final String[] result = dir.list(filter);
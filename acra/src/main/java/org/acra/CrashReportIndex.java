@@ -0,0 +1,699 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.acra.log.ACRALog;
+import org.acra.log.AndroidLogDelegate;
+
+import android.content.Context;
+
+/**
+ * Keeps track of pending reports and their state in a single small file, so
+ * that finding pending reports does not require listing the application files
+ * directory and parsing every report file name again.
+ * <p>
+ * The index is kept up to date by {@link CrashReportPersister} when reports are
+ * stored, approved or deleted. If the index file is missing or unreadable, it
+ * is rebuilt from the report files found by {@link CrashReportFinder}. It is
+ * also reconciled with the report files on application start, as the process
+ * may have died between writing a report and indexing it.
+ * </p>
+ * <p>
+ * Each change rewrites the index file, except between
+ * {@link #beginUpdates()} and {@link #endUpdates()} where changes to existing
+ * entries are written once at the end. New reports are always written at
+ * once, so that they are not left out of the index.
+ * </p>
+ */
+final class CrashReportIndex {
+
+    private static final String INDEX_FILE_NAME = "ACRA-REPORTS-INDEX";
+    private static final String INDEX_VERSION = "1";
+    private static final char SEPARATOR = '\t';
+
+    private static CrashReportIndex instance;
+
+    private final File dir;
+    private final boolean sync;
+    private final ACRALog log;
+    private static final CrashReportFileNameParser fileNameParser = new CrashReportFileNameParser();
+
+    /**
+     * Pending reports by file name. File names start with the report creation
+     * timestamp, so iteration order is the chronological order.
+     */
+    private Map<String, Entry> entries;
+
+    /** Number of {@link #beginUpdates()} not ended yet. */
+    private int updates;
+    /** Whether entries have been changed since the index file was written. */
+    private boolean dirty;
+
+    /**
+     * @param dir
+     *            Directory holding the report files and the index file, or
+     *            null if it does not exist.
+     * @param sync
+     *            Whether the index file is synced to the storage device when
+     *            written.
+     * @param log
+     *            ACRALog to which errors are logged.
+     */
+    CrashReportIndex(File dir, boolean sync, ACRALog log) {
+        this.dir = dir;
+        this.sync = sync;
+        this.log = log;
+    }
+
+    /**
+     * @param context
+     *            Context of the application in which reports are stored.
+     * @return The index of the reports stored for this application.
+     */
+    static synchronized CrashReportIndex getInstance(Context context) {
+        if (instance == null) {
+            final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext()
+                    : context;
+            instance = new CrashReportIndex(appContext.getFilesDir(), ACRA.getConfig().syncReportFiles(),
+                    new AndroidLogDelegate());
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a series of changes, such as a pass sending reports, after which
+     * the index file is written once instead of after each change. Must be
+     * followed by {@link #endUpdates()}.
+     */
+    synchronized void beginUpdates() {
+        updates++;
+    }
+
+    /**
+     * Ends a series of changes started by {@link #beginUpdates()}, writing the
+     * index file if entries have been changed.
+     */
+    synchronized void endUpdates() {
+        if (updates > 0 && --updates == 0 && dirty) {
+            write();
+        }
+    }
+
+    /**
+     * @return The pending reports, oldest first.
+     */
+    synchronized List<Entry> getEntries() {
+        return new ArrayList<Entry>(getEntriesMap().values());
+    }
+
+    /**
+     * @return The names of the pending report files, oldest first.
+     */
+    synchronized String[] getReportFileNames() {
+        final Map<String, Entry> map = getEntriesMap();
+        return map.keySet().toArray(new String[map.size()]);
+    }
+
+    /**
+     * @param fileName
+     *            Name of a report file.
+     * @return The index entry for this report file, or null if there is no
+     *         such pending report.
+     */
+    synchronized Entry get(String fileName) {
+        return getEntriesMap().get(fileName);
+    }
+
+    /**
+     * Adds or updates the entry of a report file which has just been written.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     * @param size
+     *            Size of the report file in bytes.
+     */
+    synchronized void put(String fileName, long size) {
+        final Entry previous = getEntriesMap().get(fileName);
+        entries.put(fileName, previous != null ? previous.withSize(size) : newEntry(fileName, size));
+        if (previous != null) {
+            save();
+        } else {
+            write();
+        }
+    }
+
+    /**
+     * Adds the entry of a new report file.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     * @param size
+     *            Size of the report file in bytes.
+     * @param versionCode
+     *            Version code of the application which created the report, 0
+     *            if unknown.
+     * @param fingerprint
+     *            {@link ReportFingerprint} of the report, or null.
+     */
+    synchronized void put(String fileName, long size, int versionCode, String fingerprint) {
+        getEntriesMap().put(fileName,
+                newEntry(fileName, size).withVersionCode(versionCode).withFingerprint(fingerprint));
+        write();
+    }
+
+    /**
+     * @param fingerprint
+     *            {@link ReportFingerprint} of a report.
+     * @param silent
+     *            Whether the report is silent.
+     * @return The most recent pending report with the same fingerprint and the
+     *         same silent state which has not been abandoned, or null if there
+     *         is none.
+     */
+    synchronized Entry findDuplicate(String fingerprint, boolean silent) {
+        Entry duplicate = null;
+        for (Entry entry : getEntriesMap().values()) {
+            if (fingerprint.equals(entry.getFingerprint()) && entry.isSilent() == silent && !entry.isAbandoned()) {
+                duplicate = entry;
+            }
+        }
+        return duplicate;
+    }
+
+    /**
+     * Records the number of occurrences of the crash held by a report.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     * @param occurrences
+     *            Number of occurrences of the crash.
+     */
+    synchronized void setOccurrences(String fileName, int occurrences) {
+        final Entry previous = getEntriesMap().get(fileName);
+        if (previous != null) {
+            entries.put(fileName, previous.withOccurrences(occurrences));
+            save();
+        }
+    }
+
+    /**
+     * Records that a summary of a report has been sent, while the report
+     * itself is kept until it can be sent.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     */
+    synchronized void setSummarySent(String fileName) {
+        final Entry previous = getEntriesMap().get(fileName);
+        if (previous != null) {
+            entries.put(fileName, previous.withSummarySent());
+            save();
+        }
+    }
+
+    /**
+     * Records that a report file has been renamed after being approved.
+     * 
+     * @param fileName
+     *            Previous name of the report file.
+     * @param newFileName
+     *            New name of the report file.
+     */
+    synchronized void approve(String fileName, String newFileName) {
+        final Entry previous = getEntriesMap().remove(fileName);
+        final Entry entry = previous != null ? previous.approved(newFileName) : newEntry(newFileName, new File(
+                dir, newFileName).length());
+        entries.put(newFileName, entry);
+        save();
+    }
+
+    /**
+     * Records a failed attempt to send a report.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     * @param nextAttemptTime
+     *            Time in milliseconds before which sending the report must not
+     *            be attempted again.
+     */
+    synchronized void recordFailedAttempt(String fileName, long nextAttemptTime) {
+        final Entry previous = getEntriesMap().get(fileName);
+        if (previous != null) {
+            entries.put(fileName, previous.withFailedAttempt(nextAttemptTime));
+            save();
+        }
+    }
+
+    /**
+     * Records that sending a report has been given up. The report is kept but
+     * it is not sent anymore, it is only deleted to enforce the pending
+     * reports limits.
+     * 
+     * @param fileName
+     *            Name of the report file.
+     */
+    synchronized void abandon(String fileName) {
+        final Entry previous = getEntriesMap().get(fileName);
+        if (previous != null) {
+            entries.put(fileName, previous.withAbandoned());
+            save();
+        }
+    }
+
+    /**
+     * Removes the entry of a report file which has been deleted.
+     * 
+     * @param fileName
+     *            Name of the deleted report file.
+     */
+    synchronized void remove(String fileName) {
+        if (getEntriesMap().remove(fileName) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Indexes the report files missing from the index, and removes the entries
+     * of the report files which don't exist anymore. Entries of the other
+     * report files are kept with their state. If the index file can't be
+     * read, the index is built from these report files without listing the
+     * directory again.
+     * 
+     * @param reportFileNames
+     *            Names of the report files found in the application files
+     *            directory.
+     */
+    synchronized void reconcile(String[] reportFileNames) {
+        if (dir == null) {
+            return;
+        }
+        if (entries == null) {
+            entries = load();
+            if (entries == null) {
+                log.d(LOG_TAG, "Building reports index.");
+                entries = new TreeMap<String, Entry>();
+                reconcile(entries, dir, reportFileNames);
+                write();
+                return;
+            }
+        }
+        if (reconcile(entries, dir, reportFileNames)) {
+            log.i(LOG_TAG, "Reports index did not match the report files, it has been updated.");
+            save();
+        }
+    }
+
+    /**
+     * @return true if the entries have been changed.
+     */
+    static boolean reconcile(Map<String, Entry> entries, File dir, String[] reportFileNames) {
+        boolean changed = false;
+        final Set<String> fileNames = new HashSet<String>(Arrays.asList(reportFileNames));
+        for (final Iterator<String> indexed = entries.keySet().iterator(); indexed.hasNext();) {
+            if (!fileNames.contains(indexed.next())) {
+                indexed.remove();
+                changed = true;
+            }
+        }
+        for (String fileName : reportFileNames) {
+            if (!entries.containsKey(fileName)) {
+                entries.put(fileName, newEntry(fileName, new File(dir, fileName).length()));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static Entry newEntry(String fileName, long size) {
+        return new Entry(fileName, fileNameParser.getTimestamp(fileName), fileNameParser.isSilent(fileName),
+                fileNameParser.isApproved(fileName), size, 0, null, 1, 0, 0, false, false);
+    }
+
+    private Map<String, Entry> getEntriesMap() {
+        if (entries == null) {
+            entries = load();
+            if (entries == null) {
+                entries = rebuild();
+                write();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return Entries read from the index file, or null if it does not exist
+     *         or can't be read.
+     */
+    private Map<String, Entry> load() {
+        if (dir == null) {
+            return null;
+        }
+        final File indexFile = new File(dir, INDEX_FILE_NAME);
+        if (!indexFile.exists()) {
+            return null;
+        }
+
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                    "UTF-8"), ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+            try {
+                if (!INDEX_VERSION.equals(reader.readLine())) {
+                    log.w(LOG_TAG, "Unknown reports index version, rebuilding it.");
+                    return null;
+                }
+
+                final Map<String, Entry> result = new TreeMap<String, Entry>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Entry entry = Entry.parse(line);
+                    result.put(entry.getFileName(), entry);
+                }
+                return result;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.w(LOG_TAG, "Could not read reports index, rebuilding it.", e);
+            return null;
+        } catch (RuntimeException e) {
+            log.w(LOG_TAG, "Corrupted reports index, rebuilding it.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Entries for the report files found in the application files
+     *         directory.
+     */
+    private Map<String, Entry> rebuild() {
+        log.d(LOG_TAG, "Building reports index.");
+        final Map<String, Entry> result = new TreeMap<String, Entry>();
+        if (dir == null) {
+            return result;
+        }
+        for (String fileName : CrashReportFinder.list(dir, ACRAConstants.REPORTFILE_EXTENSION)) {
+            result.put(fileName, newEntry(fileName, new File(dir, fileName).length()));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the index file, or defers it to {@link #endUpdates()} during a
+     * series of changes.
+     */
+    private void save() {
+        if (updates > 0) {
+            dirty = true;
+        } else {
+            write();
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file which then replaces the index file,
+     * so that the index can't be left half written.
+     */
+    private void write() {
+        dirty = false;
+        if (dir == null) {
+            return;
+        }
+        final File indexFile = new File(dir, INDEX_FILE_NAME);
+        final File tempFile = new File(dir, INDEX_FILE_NAME + ACRAConstants.PARTIAL_REPORTFILE_SUFFIX);
+        try {
+            final FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                final Writer writer = new OutputStreamWriter(out, "UTF-8");
+                writer.write(INDEX_VERSION);
+                writer.write('\n');
+                for (Entry entry : entries.values()) {
+                    entry.write(writer);
+                    writer.write('\n');
+                }
+                writer.flush();
+                if (sync) {
+                    out.getFD().sync();
+                }
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(indexFile)) {
+                log.w(LOG_TAG, "Could not rename reports index " + tempFile + " to " + indexFile);
+                if (!indexFile.delete() || !tempFile.renameTo(indexFile)) {
+                    // The index will be rebuilt from report files.
+                    indexFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            log.w(LOG_TAG, "Could not write reports index.", e);
+            // A stale index is worse than no index at all.
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * State of a pending report.
+     */
+    static final class Entry implements PendingReport {
+
+        private final String fileName;
+        private final long timestamp;
+        private final boolean silent;
+        private final boolean approved;
+        private final long size;
+        private final int attempts;
+        private final String fingerprint;
+        private final int occurrences;
+        private final long nextAttemptTime;
+        private final int versionCode;
+        private final boolean summarySent;
+        private final boolean abandoned;
+
+        Entry(String fileName, long timestamp, boolean silent, boolean approved, long size, int attempts,
+                String fingerprint, int occurrences, long nextAttemptTime, int versionCode, boolean summarySent,
+                boolean abandoned) {
+            this.fileName = fileName;
+            this.timestamp = timestamp;
+            this.silent = silent;
+            this.approved = approved;
+            this.size = size;
+            this.attempts = attempts;
+            this.fingerprint = fingerprint;
+            this.occurrences = occurrences;
+            this.nextAttemptTime = nextAttemptTime;
+            this.versionCode = versionCode;
+            this.summarySent = summarySent;
+            this.abandoned = abandoned;
+        }
+
+        /**
+         * @return Name of the report file.
+         */
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return Creation time of the report in milliseconds.
+         */
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return True if the report has been created with
+         *         {@link ErrorReporter#handleSilentException(Throwable)}.
+         */
+        @Override
+        public boolean isSilent() {
+            return silent;
+        }
+
+        /**
+         * @return True if the report can be sent: it has been approved by the
+         *         user or it is silent.
+         */
+        boolean isApproved() {
+            return silent || approved;
+        }
+
+        /**
+         * @return Size of the report file in bytes.
+         */
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return Number of times sending this report has been attempted.
+         */
+        @Override
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return {@link ReportFingerprint} of the report, or null if unknown.
+         */
+        @Override
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return Number of occurrences of the crash held by the report.
+         */
+        @Override
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * @return Time in milliseconds before which sending this report must
+         *         not be attempted again, 0 if it can be sent right away.
+         */
+        long getNextAttemptTime() {
+            return nextAttemptTime;
+        }
+
+        /**
+         * @return Version code of the application which created the report, 0
+         *         if unknown.
+         */
+        @Override
+        public int getVersionCode() {
+            return versionCode;
+        }
+
+        /**
+         * @return True if a summary of the report has already been sent.
+         */
+        boolean isSummarySent() {
+            return summarySent;
+        }
+
+        /**
+         * @return True if sending the report has been given up after too many
+         *         failed attempts. The report is kept but not sent anymore.
+         */
+        boolean isAbandoned() {
+            return abandoned;
+        }
+
+        Entry withSize(long newSize) {
+            return new Entry(fileName, timestamp, silent, approved, newSize, attempts, fingerprint, occurrences,
+                    nextAttemptTime, versionCode, summarySent, abandoned);
+        }
+
+        Entry withFingerprint(String newFingerprint) {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts, newFingerprint, occurrences,
+                    nextAttemptTime, versionCode, summarySent, abandoned);
+        }
+
+        Entry withOccurrences(int newOccurrences) {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts, fingerprint, newOccurrences,
+                    nextAttemptTime, versionCode, summarySent, abandoned);
+        }
+
+        Entry withFailedAttempt(long newNextAttemptTime) {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts + 1, fingerprint, occurrences,
+                    newNextAttemptTime, versionCode, summarySent, abandoned);
+        }
+
+        Entry withVersionCode(int newVersionCode) {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts, fingerprint, occurrences,
+                    nextAttemptTime, newVersionCode, summarySent, abandoned);
+        }
+
+        Entry withSummarySent() {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts, fingerprint, occurrences,
+                    nextAttemptTime, versionCode, true, abandoned);
+        }
+
+        Entry withAbandoned() {
+            return new Entry(fileName, timestamp, silent, approved, size, attempts, fingerprint, occurrences,
+                    nextAttemptTime, versionCode, summarySent, true);
+        }
+
+        Entry approved(String newFileName) {
+            return new Entry(newFileName, timestamp, silent, true, size, attempts, fingerprint, occurrences,
+                    nextAttemptTime, versionCode, summarySent, abandoned);
+        }
+
+        void write(Writer writer) throws IOException {
+            writer.write(fileName);
+            writer.write(SEPARATOR);
+            writer.write(Long.toString(timestamp));
+            writer.write(SEPARATOR);
+            writer.write(silent ? '1' : '0');
+            writer.write(SEPARATOR);
+            writer.write(approved ? '1' : '0');
+            writer.write(SEPARATOR);
+            writer.write(Long.toString(size));
+            writer.write(SEPARATOR);
+            writer.write(Integer.toString(attempts));
+            writer.write(SEPARATOR);
+            writer.write(fingerprint != null ? fingerprint : "");
+            writer.write(SEPARATOR);
+            writer.write(Integer.toString(occurrences));
+            writer.write(SEPARATOR);
+            writer.write(Long.toString(nextAttemptTime));
+            writer.write(SEPARATOR);
+            writer.write(Integer.toString(versionCode));
+            writer.write(SEPARATOR);
+            writer.write(summarySent ? '1' : '0');
+            writer.write(SEPARATOR);
+            writer.write(abandoned ? '1' : '0');
+        }
+
+        static Entry parse(String line) {
+            final String[] columns = line.split(String.valueOf(SEPARATOR));
+            // Columns added after the first version of the index may be
+            // missing.
+            final String fingerprint = columns.length > 6 && columns[6].length() > 0 ? columns[6] : null;
+            final int occurrences = columns.length > 7 ? Integer.parseInt(columns[7]) : 1;
+            final long nextAttemptTime = columns.length > 8 ? Long.parseLong(columns[8]) : 0;
+            final int versionCode = columns.length > 9 ? Integer.parseInt(columns[9]) : 0;
+            final boolean summarySent = columns.length > 10 && "1".equals(columns[10]);
+            final boolean abandoned = columns.length > 11 && "1".equals(columns[11]);
+            return new Entry(columns[0], Long.parseLong(columns[1]), "1".equals(columns[2]), "1".equals(columns[3]),
+                    Long.parseLong(columns[4]), Integer.parseInt(columns[5]), fingerprint, occurrences,
+                    nextAttemptTime, versionCode, summarySent, abandoned);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.acra.annotation.ReportsCrashes;
+import org.acra.collector.CrashReportData;
+import org.acra.log.ACRALog;
+import org.acra.log.AndroidLogDelegate;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Append-only journal of silent reports, used instead of one report file per
+ * report when {@link org.acra.annotation.ReportsCrashes#journalSilentReports()}
+ * is enabled.
+ * <p>
+ * The journal is made of numbered segment files. Each segment starts with a
+ * header holding the offset of the first record which has not been sent yet,
+ * updated in place as records are consumed, followed by records made of a
+ * length and a report in the {@link ReportFileFormat#BINARY} format. Reports
+ * are always appended to the last segment. A new segment is started when the
+ * last one exceeds the configured size, and the oldest segments are dropped
+ * when there are more than the configured number of segments.
+ * </p>
+ * <p>
+ * A record is written with a single write. When
+ * {@link ReportsCrashes#syncReportFiles()} is enabled, a segment is synced to
+ * the storage device once, when the next segment is started, rather than
+ * after each record. A record which can't be read is skipped, and a segment
+ * is cut at a record whose length is corrupted.
+ * </p>
+ */
+final class CrashReportJournal {
+
+    private static final String SEGMENT_PREFIX = "ACRA-JOURNAL-";
+    private static final String SEGMENT_EXTENSION = ".journal";
+
+    /** "ACJ1" */
+    private static final int MAGIC = 0x41434A31;
+    private static final int CONSUMED_OFFSET_POSITION = 4;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private static final String PREF_FAILED_RECORD = "acra.journal.failedRecord";
+    private static final String PREF_ATTEMPTS = "acra.journal.attempts";
+    private static final String PREF_NEXT_ATTEMPT_TIME = "acra.journal.nextAttemptTime";
+
+    private static CrashReportJournal instance;
+
+    private final File dir;
+    private final CrashReportPersister persister;
+    private final ACRALog log;
+
+    /**
+     * Whether the last segment has been checked for a record truncated by the
+     * death of the process while it was being appended.
+     */
+    private boolean recovered = false;
+
+    /**
+     * @param dir
+     *            Directory holding the segment files, or null if there is
+     *            none.
+     * @param persister
+     *            CrashReportPersister encoding the records.
+     * @param log
+     *            ACRALog to which errors are logged.
+     */
+    CrashReportJournal(File dir, CrashReportPersister persister, ACRALog log) {
+        this.dir = dir;
+        this.persister = persister;
+        this.log = log;
+    }
+
+    /**
+     * @param context
+     *            Context of the application in which reports are stored.
+     * @return The silent reports journal of this application.
+     */
+    static synchronized CrashReportJournal getInstance(Context context) {
+        if (instance == null) {
+            final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext()
+                    : context;
+            instance = new CrashReportJournal(appContext.getFilesDir(), new CrashReportPersister(appContext),
+                    new AndroidLogDelegate());
+        }
+        return instance;
+    }
+
+    /**
+     * Appends a report to the journal.
+     *
+     * @param crashData
+     *            The report to append.
+     * @throws IOException
+     *             if the report could not be written.
+     */
+    void append(CrashReportData crashData) throws IOException {
+        final ReportsCrashes config = ACRA.getConfig();
+        append(crashData, config.journalSegmentSize(), config.maxJournalSegments(), config.syncReportFiles());
+    }
+
+    /**
+     * Appends a report to the journal.
+     *
+     * @param crashData
+     *            The report to append.
+     * @param segmentSize
+     *            Size in bytes above which a new segment is started.
+     * @param maxSegments
+     *            Maximum number of segments kept.
+     * @param sync
+     *            true to sync a segment to the storage device when the next
+     *            one is started.
+     * @throws IOException
+     *             if the report could not be written.
+     */
+    synchronized void append(CrashReportData crashData, int segmentSize, int maxSegments, boolean sync)
+            throws IOException {
+        // The segment header and the record length are written in front of
+        // the report, so that the whole record is written at once.
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        buffer.write(new byte[HEADER_SIZE + RECORD_HEADER_SIZE]);
+        persister.store(crashData, buffer, ReportFileFormat.BINARY, false);
+        final byte[] record = buffer.toByteArray();
+        final int recordLength = record.length - HEADER_SIZE - RECORD_HEADER_SIZE;
+        putInt(record, 0, MAGIC);
+        putInt(record, 4, 0);
+        putInt(record, 8, HEADER_SIZE);
+        putInt(record, HEADER_SIZE, recordLength);
+
+        List<Long> segments = getSegments();
+        if (!recovered) {
+            if (!segments.isEmpty()) {
+                truncatePartialRecord(segments.get(segments.size() - 1));
+            }
+            recovered = true;
+        }
+
+        long sequence;
+        if (segments.isEmpty()) {
+            sequence = 0;
+        } else {
+            sequence = segments.get(segments.size() - 1);
+            if (getSegmentFile(sequence).length() + RECORD_HEADER_SIZE + recordLength > segmentSize) {
+                if (sync) {
+                    syncSegment(sequence);
+                }
+                sequence++;
+            }
+        }
+
+        final RandomAccessFile segment = new RandomAccessFile(getSegmentFile(sequence), "rw");
+        try {
+            if (segment.length() < HEADER_SIZE) {
+                segment.setLength(0);
+                segment.write(record);
+            } else {
+                segment.seek(segment.length());
+                segment.write(record, HEADER_SIZE, record.length - HEADER_SIZE);
+            }
+        } finally {
+            segment.close();
+        }
+
+        segments = getSegments();
+        for (int i = 0; i < segments.size() - Math.max(1, maxSegments); i++) {
+            final File dropped = getSegmentFile(segments.get(i));
+            log.w(LOG_TAG, "Silent reports journal is full, dropping " + dropped.getName());
+            if (!dropped.delete()) {
+                log.e(LOG_TAG, "Could not delete journal segment : " + dropped);
+            }
+        }
+    }
+
+    private static void putInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    /**
+     * Forces a completed segment to the storage device.
+     */
+    private void syncSegment(long sequence) {
+        final File segmentFile = getSegmentFile(sequence);
+        try {
+            final RandomAccessFile segment = new RandomAccessFile(segmentFile, "rw");
+            try {
+                segment.getFD().sync();
+            } finally {
+                segment.close();
+            }
+        } catch (IOException e) {
+            log.w(LOG_TAG, "Could not sync journal segment " + segmentFile.getName(), e);
+        }
+    }
+
+    /**
+     * Reads the oldest report which has not been consumed yet. Records which
+     * can't be read are consumed and skipped. A segment is cut at a record
+     * whose length is corrupted, as the records after it can't be found.
+     *
+     * @return The oldest pending record of the journal, or null if the journal
+     *         is empty.
+     */
+    synchronized Record peek() {
+        for (Long sequence : getSegments()) {
+            final File segmentFile = getSegmentFile(sequence);
+            try {
+                final RandomAccessFile segment = new RandomAccessFile(segmentFile, "rw");
+                try {
+                    if (segment.length() >= HEADER_SIZE && segment.readInt() == MAGIC) {
+                        final Record record = readRecord(sequence, segment);
+                        if (record != null) {
+                            return record;
+                        }
+                    }
+                } finally {
+                    segment.close();
+                }
+            } catch (IOException e) {
+                log.w(LOG_TAG, "Corrupted journal segment " + segmentFile.getName(), e);
+            }
+
+            // Nothing left to read in this segment.
+            if (!segmentFile.delete()) {
+                log.e(LOG_TAG, "Could not delete journal segment : " + segmentFile);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param segment
+     *            Segment positioned after its magic number.
+     * @return The first readable record not consumed yet, or null if there is
+     *         none left in the segment.
+     */
+    private Record readRecord(long sequence, RandomAccessFile segment) throws IOException {
+        long offset = segment.readLong();
+        final long segmentLength = segment.length();
+        while (offset + RECORD_HEADER_SIZE <= segmentLength) {
+            segment.seek(offset);
+            final int length = segment.readInt();
+            final long nextOffset = offset + RECORD_HEADER_SIZE + length;
+            if (length < 0 || nextOffset > segmentLength) {
+                log.w(LOG_TAG, "Cutting journal segment " + sequence + " at corrupted record " + offset);
+                segment.setLength(offset);
+                return null;
+            }
+            final byte[] record = new byte[length];
+            segment.readFully(record);
+            try {
+                return new Record(sequence, offset, nextOffset, persister.load(new ByteArrayInputStream(record)),
+                        length);
+            } catch (IOException e) {
+                log.w(LOG_TAG, "Skipping corrupted record " + offset + " of journal segment " + sequence, e);
+            } catch (IllegalArgumentException e) {
+                // Thrown by the text format parser on garbled content.
+                log.w(LOG_TAG, "Skipping corrupted record " + offset + " of journal segment " + sequence, e);
+            }
+            offset = nextOffset;
+            segment.seek(CONSUMED_OFFSET_POSITION);
+            segment.writeLong(offset);
+        }
+        return null;
+    }
+
+    /**
+     * Marks a record returned by {@link #peek()} as consumed, so that it is not
+     * returned again.
+     *
+     * @param record
+     *            The consumed record.
+     */
+    synchronized void consume(Record record) {
+        final SharedPreferences prefs = ACRA.getACRASharedPreferences();
+        if (record.getId().equals(prefs.getString(PREF_FAILED_RECORD, null))) {
+            prefs.edit().remove(PREF_FAILED_RECORD).remove(PREF_ATTEMPTS).remove(PREF_NEXT_ATTEMPT_TIME).commit();
+        }
+        skip(record);
+    }
+
+    /**
+     * Moves the start of the pending records of a segment past a record,
+     * deleting the segment once all its records are consumed.
+     *
+     * @param record
+     *            A record returned by {@link #peek()}.
+     */
+    synchronized void skip(Record record) {
+        final File segmentFile = getSegmentFile(record.sequence);
+        if (!segmentFile.exists()) {
+            // The segment has been dropped in the meantime.
+            return;
+        }
+        try {
+            final RandomAccessFile segment = new RandomAccessFile(segmentFile, "rw");
+            try {
+                if (record.nextOffset < segment.length()) {
+                    segment.seek(CONSUMED_OFFSET_POSITION);
+                    segment.writeLong(record.nextOffset);
+                    return;
+                }
+            } finally {
+                segment.close();
+            }
+            // All the records of this segment have been consumed.
+            if (!segmentFile.delete()) {
+                log.e(LOG_TAG, "Could not delete journal segment : " + segmentFile);
+            }
+        } catch (IOException e) {
+            log.e(LOG_TAG, "Could not update journal segment " + segmentFile.getName(), e);
+        }
+    }
+
+    /**
+     * @param record
+     *            A record returned by {@link #peek()}.
+     * @return Number of failed attempts to send this record.
+     */
+    synchronized int getAttempts(Record record) {
+        final SharedPreferences prefs = ACRA.getACRASharedPreferences();
+        return record.getId().equals(prefs.getString(PREF_FAILED_RECORD, null)) ? prefs.getInt(PREF_ATTEMPTS, 0)
+                : 0;
+    }
+
+    /**
+     * @param record
+     *            A record returned by {@link #peek()}.
+     * @return Time in milliseconds before which sending this record must not
+     *         be attempted again, 0 if it can be sent right away.
+     */
+    synchronized long getNextAttemptTime(Record record) {
+        final SharedPreferences prefs = ACRA.getACRASharedPreferences();
+        return record.getId().equals(prefs.getString(PREF_FAILED_RECORD, null)) ? prefs.getLong(
+                PREF_NEXT_ATTEMPT_TIME, 0) : 0;
+    }
+
+    /**
+     * Records a failed attempt to send a record. Records are sent in order, so
+     * only the attempts of the oldest record are kept, in the ACRA
+     * SharedPreferences.
+     *
+     * @param record
+     *            A record returned by {@link #peek()} which could not be sent.
+     * @param nextAttemptTime
+     *            Time in milliseconds before which sending the record must not
+     *            be attempted again.
+     */
+    synchronized void recordFailedAttempt(Record record, long nextAttemptTime) {
+        final int attempts = getAttempts(record) + 1;
+        ACRA.getACRASharedPreferences().edit().putString(PREF_FAILED_RECORD, record.getId())
+                .putInt(PREF_ATTEMPTS, attempts).putLong(PREF_NEXT_ATTEMPT_TIME, nextAttemptTime).commit();
+    }
+
+    /**
+     * Cuts a record left incomplete at the end of a segment, so that the next
+     * records are not appended after it.
+     */
+    private void truncatePartialRecord(long sequence) {
+        final File segmentFile = getSegmentFile(sequence);
+        try {
+            final RandomAccessFile segment = new RandomAccessFile(segmentFile, "rw");
+            try {
+                final long fileLength = segment.length();
+                if (fileLength < HEADER_SIZE || segment.readInt() != MAGIC) {
+                    segment.setLength(0);
+                    return;
+                }
+                long offset = segment.readLong();
+                while (offset + RECORD_HEADER_SIZE <= fileLength) {
+                    segment.seek(offset);
+                    final int length = segment.readInt();
+                    if (length < 0 || offset + RECORD_HEADER_SIZE + length > fileLength) {
+                        break;
+                    }
+                    offset += RECORD_HEADER_SIZE + length;
+                }
+                if (offset < fileLength) {
+                    log.w(LOG_TAG, "Dropping partially written record of journal segment " + segmentFile.getName());
+                    segment.setLength(offset);
+                }
+            } finally {
+                segment.close();
+            }
+        } catch (IOException e) {
+            log.e(LOG_TAG, "Could not check journal segment " + segmentFile.getName(), e);
+        }
+    }
+
+    private File getSegmentFile(long sequence) {
+        return new File(dir, SEGMENT_PREFIX + sequence + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * @return The sequence numbers of the existing segments, oldest first.
+     */
+    private List<Long> getSegments() {
+        final List<Long> segments = new ArrayList<Long>();
+        if (dir == null) {
+            return segments;
+        }
+
+        final String[] fileNames = dir.list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION);
+            }
+        });
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                try {
+                    segments.add(Long.valueOf(fileName.substring(SEGMENT_PREFIX.length(), fileName.length()
+                            - SEGMENT_EXTENSION.length())));
+                } catch (NumberFormatException e) {
+                    log.w(LOG_TAG, "Ignoring unexpected journal file " + fileName);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * A report read from the journal.
+     */
+    static final class Record {
+
+        private final long sequence;
+        private final long offset;
+        private final long nextOffset;
+        private final CrashReportData crashData;
+        private final int size;
+
+        private Record(long sequence, long offset, long nextOffset, CrashReportData crashData, int size) {
+            this.sequence = sequence;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.crashData = crashData;
+            this.size = size;
+        }
+
+        /**
+         * @return The report content.
+         */
+        CrashReportData getCrashData() {
+            return crashData;
+        }
+
+        /**
+         * @return Size in bytes of the record in the journal.
+         */
+        int getSize() {
+            return size;
+        }
+
+        /**
+         * @return Position of the record in the journal, which identifies it.
+         */
+        private String getId() {
+            return sequence + ":" + offset;
+        }
+    }
+}
@@ -19,18 +19,46 @@
 
 package org.acra;
 
+import static org.acra.ACRA.LOG_TAG;
+import static org.acra.ReportField.APP_VERSION_CODE;
+import static org.acra.ReportField.IS_SILENT;
+import static org.acra.ReportField.LAST_CRASH_DATE;
+import static org.acra.ReportField.OCCURRENCES;
+import static org.acra.ReportField.USER_CRASH_DATE;
+
 import android.content.Context;
+import android.text.format.Time;
+import android.util.Log;
+import org.acra.annotation.ReportsCrashes;
 import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportDataReader;
+import org.acra.collector.CrashReportReader;
+import org.acra.util.LimitedInputStream;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Stores a crash reports data with {@link org.acra.ReportField} enum values as keys.
@@ -38,12 +66,30 @@ import java.util.Map;
  * EnumMap instead of Hashtable and with a few tweaks to avoid losing crazy
  * amounts of android time in the generation of a date comment when storing to
  * file.
+ * <p>
+ * Reports can also be stored in a {@link ReportFileFormat#BINARY} format made
+ * of a header followed by length-prefixed UTF-8 values keyed by
+ * {@link ReportField} ordinal. Both formats can optionally be gzip compressed.
+ * {@link #load(String)} detects the format and compression of each file so
+ * that reports can always be read, whatever the current configuration.
+ * </p>
  */
 final class CrashReportPersister {
 
     private static final int NONE = 0, SLASH = 1, UNICODE = 2, CONTINUE = 3, KEY_DONE = 4, IGNORE = 5;
     private static final String LINE_SEPARATOR = "\n";
 
+    /**
+     * First bytes of a {@link ReportFileFormat#BINARY} report file ("ACRB").
+     * No {@link ReportField} name starts with these characters so they can't
+     * be mistaken for the start of a {@link ReportFileFormat#TEXT} report.
+     */
+    private static final byte[] BINARY_MAGIC = { 'A', 'C', 'R', 'B' };
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_NULL_VALUE = -1;
+    /** Size of the field ordinal and value length preceding each value. */
+    private static final int BINARY_RECORD_HEADER_SIZE = 6;
+
     private final Context context;
 
     CrashReportPersister(Context context) {
@@ -66,19 +112,158 @@ final class CrashReportPersister {
         }
 
         try {
-            final BufferedInputStream bis = new BufferedInputStream(in, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
-            bis.mark(Integer.MAX_VALUE);
-            final boolean isEbcdic = isEbcdic(bis);
+            return load(in);
+        } catch (IllegalArgumentException e) {
+            // Thrown by the text format parser on garbled content.
+            final IOException ioe = new IOException("Corrupted crash report : " + fileName);
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Loads as many fields as possible from a report file which may have been
+     * truncated, like a temporary file left behind when the process died
+     * while writing it.
+     * 
+     * @param fileName
+     *            Name of the possibly truncated report file.
+     * @return CrashReportData with all the fields which could be read.
+     * @throws java.io.IOException
+     *             if the file could not be opened.
+     */
+    public CrashReportData loadPartial(String fileName) throws IOException {
+        final CrashReportData crashData = new CrashReportData();
+        final FileInputStream in = context.openFileInput(fileName);
+        try {
+            load(in, crashData);
+        } catch (EOFException e) {
+            // Truncated file: keep what has been read so far.
+        } catch (IllegalArgumentException e) {
+            // Garbled text: keep what has been read so far.
+        } finally {
+            in.close();
+        }
+        return crashData;
+    }
+
+    /**
+     * Opens a {@link CrashReportReader} over a stored report.
+     * {@link ReportFileFormat#BINARY} reports are read field by field from the
+     * file with a fixed size buffer. Reports stored with other formats are
+     * loaded in memory first.
+     * 
+     * @param fileName
+     *            Name of the report file to read.
+     * @return A CrashReportReader which has to be closed by the caller.
+     * @throws java.io.IOException
+     *             if the report file could not be opened.
+     */
+    public CrashReportReader openReader(String fileName) throws IOException {
+        return openReader(new File(context.getFilesDir(), fileName));
+    }
+
+    /**
+     * Opens a {@link CrashReportReader} over a report file.
+     * 
+     * @param reportFile
+     *            The report file to read.
+     * @return A CrashReportReader which has to be closed by the caller.
+     * @throws java.io.IOException
+     *             if the report file could not be opened.
+     */
+    CrashReportReader openReader(File reportFile) throws IOException {
+        final FileInputStream in = new FileInputStream(reportFile);
+        boolean keepOpen = false;
+        try {
+            final BufferedInputStream raw = new BufferedInputStream(in, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+            final BufferedInputStream bis = decompress(raw);
+            bis.mark(BINARY_MAGIC.length);
+            final boolean isBinary = hasBinaryMagic(bis);
             bis.reset();
 
-            if (!isEbcdic) {
-                return load(new InputStreamReader(bis, "ISO8859-1")); //$NON-NLS-1$
-            } else {
-                return load(new InputStreamReader(bis)); //$NON-NLS-1$
+            if (isBinary) {
+                // Fields changed by update() are appended to uncompressed
+                // reports: only their last record has to be read.
+                final int[] lastRecords = bis == raw ? findLastRecords(reportFile) : null;
+                final CrashReportReader reader = new BinaryReportReader(bis, bis == raw ? reportFile.length() : -1,
+                        lastRecords);
+                keepOpen = true;
+                return reader;
+            }
+            return new CrashReportDataReader(load(bis));
+        } catch (IllegalArgumentException e) {
+            // Thrown by the text format parser on garbled content.
+            final IOException ioe = new IOException("Corrupted crash report : " + reportFile.getName());
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            if (!keepOpen) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Finds, for each field of an uncompressed
+     * {@link ReportFileFormat#BINARY} report, the index of its last record.
+     * Values are skipped, not read.
+     */
+    private int[] findLastRecords(File reportFile) throws IOException {
+        final int[] lastRecords = new int[ReportField.values().length];
+        final FileInputStream in = new FileInputStream(reportFile);
+        try {
+            final BinaryReportReader reader = new BinaryReportReader(new BufferedInputStream(in,
+                    ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES), reportFile.length(), null);
+            while (reader.next()) {
+                lastRecords[reader.getField().ordinal()] = reader.getRecordIndex();
             }
         } finally {
             in.close();
         }
+        return lastRecords;
+    }
+
+    /**
+     * Loads a report from an {@code InputStream}, whatever the
+     * {@link ReportFileFormat} it has been stored with and whether it has been
+     * compressed or not.
+     * 
+     * @param in
+     *            InputStream from which to read the report. It is not closed.
+     * @return CrashReportData read from the supplied InputStream.
+     * @throws java.io.IOException
+     *             if error occurs during reading from the {@code InputStream}.
+     */
+    CrashReportData load(InputStream in) throws IOException {
+        final CrashReportData crashData = new CrashReportData();
+        load(in, crashData);
+        return crashData;
+    }
+
+    private void load(InputStream in, CrashReportData crashData) throws IOException {
+        final BufferedInputStream bis = decompress(new BufferedInputStream(in,
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES));
+        bis.mark(BINARY_MAGIC.length);
+        final boolean isBinary = hasBinaryMagic(bis);
+        bis.reset();
+
+        if (isBinary) {
+            loadBinary(bis, crashData);
+            return;
+        }
+
+        bis.mark(Integer.MAX_VALUE);
+        final boolean isEbcdic = isEbcdic(bis);
+        bis.reset();
+
+        if (!isEbcdic) {
+            load(new InputStreamReader(bis, "ISO8859-1"), crashData); //$NON-NLS-1$
+        } else {
+            load(new InputStreamReader(bis), crashData); //$NON-NLS-1$
+        }
     }
 
     /**
@@ -91,24 +276,444 @@ final class CrashReportPersister {
      * @throws java.io.IOException if the CrashReportData could not be written to the OutputStream.
      */
     public void store(CrashReportData crashData, String fileName) throws IOException {
+        store(crashData, fileName, ReportFingerprint.of(crashData));
+    }
+
+    /**
+     * Stores a report and indexes it with its fingerprint. Fingerprints are
+     * computed for every report, not only when duplicates are coalesced, as
+     * {@link ReportEvictionPolicy} implementations may rely on them.
+     */
+    private void store(CrashReportData crashData, String fileName, String fingerprint) throws IOException {
+
+        // Write to a temporary file first and rename it once complete: the
+        // process may die at any time while writing and a truncated file must
+        // never be mistaken for a report.
+        final File reportFile = new File(context.getFilesDir(), fileName);
+        final File tempFile = new File(context.getFilesDir(), fileName + ACRAConstants.PARTIAL_REPORTFILE_SUFFIX);
+        boolean written = false;
 
-        final OutputStream out = context.openFileOutput(fileName, Context.MODE_PRIVATE);
+        final FileOutputStream out = new FileOutputStream(tempFile);
         try {
-            final StringBuilder buffer = new StringBuilder(200);
-            final OutputStreamWriter writer = new OutputStreamWriter(out, "ISO8859_1"); //$NON-NLS-1$
-
-            for (final Map.Entry<ReportField, String> entry : crashData.entrySet()) {
-                final String key = entry.getKey().toString();
-                dumpString(buffer, key, true);
-                buffer.append('=');
-                dumpString(buffer, entry.getValue(), false);
-                buffer.append(LINE_SEPARATOR);
-                writer.write(buffer.toString());
-                buffer.setLength(0);
-            }
-            writer.flush();
+            store(crashData, out, ACRA.getConfig().reportFileFormat(), ACRA.getConfig().compressReportFiles());
+            if (ACRA.getConfig().syncReportFiles()) {
+                out.getFD().sync();
+            }
+            written = true;
         } finally {
             out.close();
+            if (!written && !tempFile.delete()) {
+                Log.w(LOG_TAG, "Could not delete partial report : " + tempFile);
+            }
+        }
+
+        if (!tempFile.renameTo(reportFile)) {
+            if (!tempFile.delete()) {
+                Log.w(LOG_TAG, "Could not delete partial report : " + tempFile);
+            }
+            throw new IOException("Could not rename " + tempFile + " to " + reportFile);
+        }
+
+        final CrashReportIndex index = CrashReportIndex.getInstance(context);
+        if (index.get(fileName) == null) {
+            index.put(fileName, reportFile.length(), getVersionCode(crashData), fingerprint);
+        } else {
+            index.put(fileName, reportFile.length());
+        }
+    }
+
+    /**
+     * @return The {@link ReportField#APP_VERSION_CODE} of the report, 0 if it
+     *         has not been collected.
+     */
+    private static int getVersionCode(CrashReportData crashData) {
+        final String versionCode = crashData.get(APP_VERSION_CODE);
+        if (versionCode == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(versionCode.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Stores a new report. If
+     * {@link org.acra.annotation.ReportsCrashes#coalesceDuplicateReports()} is
+     * enabled and a pending report holds the same crash, the
+     * {@link ReportField#OCCURRENCES} and {@link ReportField#LAST_CRASH_DATE}
+     * of that report are updated instead.
+     * 
+     * @param crashData
+     *            CrashReportData to save.
+     * @param fileName
+     *            Name of the file to which to store the report if it is not a
+     *            duplicate.
+     * @return Name of the report file holding the report.
+     * @throws java.io.IOException
+     *             if the report could not be written.
+     */
+    public String storeOrCoalesce(CrashReportData crashData, String fileName) throws IOException {
+        final String fingerprint = ReportFingerprint.of(crashData);
+        if (ACRA.getConfig().coalesceDuplicateReports()) {
+            final CrashReportIndex index = CrashReportIndex.getInstance(context);
+            final CrashReportIndex.Entry duplicate = fingerprint == null ? null : index.findDuplicate(fingerprint,
+                    crashData.containsKey(IS_SILENT));
+            if (duplicate != null) {
+                final int occurrences = duplicate.getOccurrences() + 1;
+                String crashDate = crashData.get(USER_CRASH_DATE);
+                if (crashDate == null) {
+                    final Time now = new Time();
+                    now.setToNow();
+                    crashDate = now.format3339(false);
+                }
+
+                final CrashReportData occurrence = new CrashReportData();
+                occurrence.put(OCCURRENCES, Integer.toString(occurrences));
+                occurrence.put(LAST_CRASH_DATE, crashDate);
+                try {
+                    update(occurrence, duplicate.getFileName());
+                    index.setOccurrences(duplicate.getFileName(), occurrences);
+                    Log.d(LOG_TAG, "Crash occurred " + occurrences + " times, report " + duplicate.getFileName());
+                    return duplicate.getFileName();
+                } catch (FileNotFoundException e) {
+                    // The report has been sent in the meantime.
+                    index.remove(duplicate.getFileName());
+                }
+            }
+        }
+
+        store(crashData, fileName, fingerprint);
+        return fileName;
+    }
+
+    /**
+     * Adds or replaces a few fields of a stored report, like the user comment,
+     * without loading and writing the whole report again. The fields are
+     * appended to a copy of the report file, which then replaces it, and
+     * override the previous values when the report is read. Compressed reports
+     * can't be appended to and are rewritten.
+     * 
+     * @param fields
+     *            The fields to add or replace.
+     * @param fileName
+     *            Name of the report file to update.
+     * @throws java.io.IOException
+     *             if the report could not be updated.
+     */
+    public void update(CrashReportData fields, String fileName) throws IOException {
+        final File reportFile = new File(context.getFilesDir(), fileName);
+        if (!append(fields, reportFile, ACRA.getConfig().syncReportFiles())) {
+            final CrashReportData crashData = load(fileName);
+            crashData.putAll(fields);
+            store(crashData, fileName);
+            return;
+        }
+        CrashReportIndex.getInstance(context).put(fileName, reportFile.length());
+    }
+
+    /**
+     * Appends fields to an uncompressed report file, in the format of the
+     * report. They override the previous values when the report is read.
+     * <p>
+     * The report bytes are copied, not parsed, to a temporary file followed by
+     * the fields, and the copy is renamed over the report once complete. If the
+     * process dies meanwhile, the report is left unchanged instead of ending
+     * with a torn record which would make it unreadable.
+     * </p>
+     * 
+     * @param fields
+     *            The fields to add or replace.
+     * @param reportFile
+     *            The report file to append to.
+     * @param sync
+     *            true to sync the report file to the disk once written.
+     * @return false if the report is compressed and can't be appended to.
+     * @throws java.io.IOException
+     *             if the fields could not be appended.
+     */
+    boolean append(CrashReportData fields, File reportFile, boolean sync) throws IOException {
+        final byte[] header = new byte[BINARY_MAGIC.length];
+        int headerLength = 0;
+        final FileInputStream in = new FileInputStream(reportFile);
+        try {
+            int read;
+            while (headerLength < header.length
+                    && (read = in.read(header, headerLength, header.length - headerLength)) != -1) {
+                headerLength += read;
+            }
+        } finally {
+            in.close();
+        }
+
+        final InputStream headerStream = new ByteArrayInputStream(header, 0, headerLength);
+        if (headerLength >= 2 && header[0] == (byte) GZIPInputStream.GZIP_MAGIC
+                && header[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return false;
+        }
+
+        final File tempFile = new File(reportFile.getPath() + ACRAConstants.PARTIAL_REPORTFILE_SUFFIX);
+        boolean written = false;
+        final FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            final FileInputStream report = new FileInputStream(reportFile);
+            try {
+                final byte[] buffer = new byte[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+                int count;
+                while ((count = report.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                report.close();
+            }
+
+            final BufferedOutputStream trailer = new BufferedOutputStream(out, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+            if (hasBinaryMagic(headerStream)) {
+                storeBinaryRecords(fields, new DataOutputStream(trailer));
+            } else {
+                storeText(fields, trailer);
+            }
+            trailer.flush();
+            if (sync) {
+                out.getFD().sync();
+            }
+            written = true;
+        } finally {
+            out.close();
+            if (!written && !tempFile.delete()) {
+                Log.w(LOG_TAG, "Could not delete partial report : " + tempFile);
+            }
+        }
+
+        if (!tempFile.renameTo(reportFile)) {
+            if (!tempFile.delete()) {
+                Log.w(LOG_TAG, "Could not delete partial report : " + tempFile);
+            }
+            throw new IOException("Could not rename " + tempFile + " to " + reportFile);
+        }
+        return true;
+    }
+
+    /**
+     * @param policyClass
+     *            The configured {@link ReportEvictionPolicy}.
+     * @return An instance of the policy, or of
+     *         {@link ReportEvictionPolicy.OldestFirst} if it cannot be
+     *         instantiated.
+     */
+    private static ReportEvictionPolicy newEvictionPolicy(Class<? extends ReportEvictionPolicy> policyClass) {
+        try {
+            return policyClass.newInstance();
+        } catch (InstantiationException e) {
+            Log.e(LOG_TAG, "Could not instantiate " + policyClass.getName() + ", deleting the oldest reports first.", e);
+        } catch (IllegalAccessException e) {
+            Log.e(LOG_TAG, "Could not instantiate " + policyClass.getName() + ", deleting the oldest reports first.", e);
+        }
+        return new ReportEvictionPolicy.OldestFirst();
+    }
+
+    /**
+     * Deletes pending reports, in the order defined by the configured
+     * {@link ReportEvictionPolicy}, until there are no more reports than
+     * allowed by {@link org.acra.annotation.ReportsCrashes#maxPendingReports()}
+     * and {@link org.acra.annotation.ReportsCrashes#maxPendingReportsSize()}.
+     * 
+     * @param keptFileName
+     *            Name of a report which must not be deleted, usually the one
+     *            which has just been stored.
+     */
+    public void evictReports(String keptFileName) {
+        final ReportsCrashes config = ACRA.getConfig();
+        final int maxReports = config.maxPendingReports();
+        final long maxSize = config.maxPendingReportsSize();
+        if (maxReports <= 0 && maxSize <= 0) {
+            return;
+        }
+
+        final List<CrashReportIndex.Entry> reports = CrashReportIndex.getInstance(context).getEntries();
+        int count = reports.size();
+        long size = 0;
+        for (CrashReportIndex.Entry report : reports) {
+            size += report.getSize();
+        }
+
+        // Abandoned reports won't be sent anymore, they are deleted first.
+        final List<CrashReportIndex.Entry> evictionOrder = new ArrayList<CrashReportIndex.Entry>();
+        final List<CrashReportIndex.Entry> sendable = new ArrayList<CrashReportIndex.Entry>();
+        for (CrashReportIndex.Entry report : reports) {
+            (report.isAbandoned() ? evictionOrder : sendable).add(report);
+        }
+        evictionOrder.addAll(newEvictionPolicy(config.reportEvictionPolicy()).evictionOrder(sendable));
+        for (CrashReportIndex.Entry report : evictionOrder) {
+            if ((maxReports <= 0 || count <= maxReports) && (maxSize <= 0 || size <= maxSize)) {
+                break;
+            }
+            if (report.getFileName().equals(keptFileName)) {
+                continue;
+            }
+            Log.w(LOG_TAG, "Too many pending reports, deleting " + report.getFileName());
+            delete(report.getFileName());
+            count--;
+            size -= report.getSize();
+        }
+    }
+
+    /**
+     * Marks a pending report as approved by the user, so that it can be sent.
+     * 
+     * @param fileName
+     *            Name of the report file to approve.
+     * @return The new name of the report file.
+     */
+    public String approve(String fileName) {
+        final String newName = fileName.replace(ACRAConstants.REPORTFILE_EXTENSION, ACRAConstants.APPROVED_SUFFIX
+                + ACRAConstants.REPORTFILE_EXTENSION);
+        final File reportFile = new File(context.getFilesDir(), fileName);
+        final File newFile = new File(context.getFilesDir(), newName);
+        if (!reportFile.renameTo(newFile)) {
+            Log.e(LOG_TAG, "Could not rename approved report from " + reportFile + " to " + newFile);
+            return fileName;
+        }
+        CrashReportIndex.getInstance(context).approve(fileName, newName);
+        return newName;
+    }
+
+    /**
+     * Deletes a pending report and removes it from the reports index.
+     * 
+     * @param fileName
+     *            Name of the report file to delete.
+     */
+    public void delete(String fileName) {
+        final File reportFile = new File(context.getFilesDir(), fileName);
+        if (!reportFile.delete() && reportFile.exists()) {
+            Log.w(LOG_TAG, "Could not delete error report : " + fileName);
+        }
+        CrashReportIndex.getInstance(context).remove(fileName);
+    }
+
+    /**
+     * Writes a report to an OutputStream using the given format.
+     * 
+     * @param crashData
+     *            CrashReportData to save.
+     * @param out
+     *            OutputStream to which to write the report. It is flushed but
+     *            not closed.
+     * @param format
+     *            {@link ReportFileFormat} to use.
+     * @param compress
+     *            Whether the report has to be gzip compressed.
+     * @throws java.io.IOException
+     *             if the CrashReportData could not be written to the
+     *             OutputStream.
+     */
+    void store(CrashReportData crashData, OutputStream out, ReportFileFormat format, boolean compress)
+            throws IOException {
+        final GZIPOutputStream gzip = compress ? new GZIPOutputStream(out, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES)
+                : null;
+        final OutputStream target = compress ? gzip : out;
+
+        if (format == ReportFileFormat.BINARY) {
+            storeBinary(crashData, target);
+        } else {
+            storeText(crashData, target);
+        }
+
+        if (gzip != null) {
+            gzip.finish();
+        }
+    }
+
+    /**
+     * Transparently decompresses gzip compressed reports, detected from their
+     * first bytes.
+     * 
+     * @param in
+     *            Stream on a stored report.
+     * @return A stream on the uncompressed report.
+     * @throws IOException
+     *             if the report could not be read.
+     */
+    private BufferedInputStream decompress(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        final boolean isGzip = in.read() == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && in.read() == (GZIPInputStream.GZIP_MAGIC >> 8);
+        in.reset();
+
+        if (!isGzip) {
+            return in;
+        }
+        return new BufferedInputStream(new GZIPInputStream(in, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES),
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+    }
+
+    private void storeText(CrashReportData crashData, OutputStream out) throws IOException {
+        final StringBuilder buffer = new StringBuilder(200);
+        final OutputStreamWriter writer = new OutputStreamWriter(out, "ISO8859_1"); //$NON-NLS-1$
+
+        for (final Map.Entry<ReportField, String> entry : crashData.entrySet()) {
+            final String key = entry.getKey().toString();
+            dumpString(buffer, key, true);
+            buffer.append('=');
+            dumpString(buffer, entry.getValue(), false);
+            buffer.append(LINE_SEPARATOR);
+            writer.write(buffer.toString());
+            buffer.setLength(0);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the {@link ReportFileFormat#BINARY} header followed by one record
+     * per field: the field ordinal (unsigned short), the value length in bytes
+     * (int, -1 for a null value) and the UTF-8 encoded value.
+     */
+    private void storeBinary(CrashReportData crashData, OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out,
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES));
+        data.write(BINARY_MAGIC);
+        data.writeByte(BINARY_VERSION);
+        storeBinaryRecords(crashData, data);
+        data.flush();
+    }
+
+    /**
+     * Writes one {@link ReportFileFormat#BINARY} record per field, without
+     * header.
+     */
+    private void storeBinaryRecords(CrashReportData crashData, DataOutputStream data) throws IOException {
+        for (final Map.Entry<ReportField, String> entry : crashData.entrySet()) {
+            data.writeShort(entry.getKey().ordinal());
+            final String value = entry.getValue();
+            if (value == null) {
+                data.writeInt(BINARY_NULL_VALUE);
+            } else {
+                final byte[] bytes = value.getBytes("UTF-8"); //$NON-NLS-1$
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+        }
+        data.flush();
+    }
+
+    private boolean hasBinaryMagic(InputStream in) throws IOException {
+        for (byte expected : BINARY_MAGIC) {
+            if (in.read() != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a {@link ReportFileFormat#BINARY} report.
+     */
+    private void loadBinary(InputStream in, CrashReportData crashData) throws IOException {
+        final BinaryReportReader reader = new BinaryReportReader(in, -1, null);
+        while (reader.next()) {
+            crashData.put(reader.getField(), reader.getValueAsString());
         }
     }
 
@@ -154,17 +759,16 @@ final class CrashReportPersister {
      * </ul>
      *
      * @param reader    Reader from which to read the properties of this CrashReportData.
-     * @return CrashReportData read from the supplied Reader.
+     * @param crashData CrashReportData to populate with the properties read from the supplied Reader.
      * @throws java.io.IOException if the properties could not be read.
      * @since 1.6
      */
-    private synchronized CrashReportData load(Reader reader) throws IOException {
+    private synchronized void load(Reader reader, CrashReportData crashData) throws IOException {
         int mode = NONE, unicode = 0, count = 0;
         char nextChar, buf[] = new char[40];
         int offset = 0, keyLength = -1, intVal;
         boolean firstChar = true;
 
-        final CrashReportData crashData = new CrashReportData();
         final BufferedReader br = new BufferedReader(reader, ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
 
         while (true) {
@@ -321,8 +925,6 @@ final class CrashReportPersister {
             }
             crashData.put(key, value);
         }
-
-        return crashData;
     }
 
     /**
@@ -371,4 +973,130 @@ final class CrashReportPersister {
             }
         }
     }
+
+    /**
+     * Reads a {@link ReportFileFormat#BINARY} report one field at a time.
+     * Values are exposed through a Reader limited to the value length, so no
+     * value is ever fully loaded unless requested. Records for fields unknown
+     * to this version of ACRA are skipped.
+     */
+    private static final class BinaryReportReader implements CrashReportReader {
+
+        private static final ReportField[] FIELDS = ReportField.values();
+
+        private final DataInputStream data;
+        private final int[] lastRecords;
+        private long remaining;
+        private int recordIndex = -1;
+        private ReportField field;
+        private LimitedInputStream value;
+
+        /**
+         * @param in
+         *            Stream on the report, positioned on its header.
+         * @param size
+         *            Number of bytes of the report, -1 if unknown.
+         * @param lastRecords
+         *            Index of the last record of each field, by field ordinal,
+         *            to skip overridden values. Null to read all the records.
+         */
+        BinaryReportReader(InputStream in, long size, int[] lastRecords) throws IOException {
+            this.lastRecords = lastRecords;
+            remaining = size < 0 ? Long.MAX_VALUE : size - BINARY_MAGIC.length - 1;
+            data = new DataInputStream(in);
+            data.skipBytes(BINARY_MAGIC.length);
+            final int version = data.readUnsignedByte();
+            if (version > BINARY_VERSION) {
+                throw new IOException("Unsupported binary report version : " + version);
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (true) {
+                if (value != null) {
+                    value.skipRemaining();
+                    value = null;
+                }
+                field = null;
+
+                final int ordinalHighByte = data.read();
+                if (ordinalHighByte == -1) {
+                    return false;
+                }
+                final int ordinal = (ordinalHighByte << 8) | data.readUnsignedByte();
+                final int length = data.readInt();
+                recordIndex++;
+                remaining -= BINARY_RECORD_HEADER_SIZE;
+                if (length != BINARY_NULL_VALUE) {
+                    // A corrupted length must not be used to allocate or skip.
+                    if (length < 0 || length > remaining) {
+                        throw new IOException("Corrupted crash report : invalid length " + length + " of record "
+                                + recordIndex);
+                    }
+                    remaining -= length;
+                    value = new LimitedInputStream(data, length);
+                }
+                if (ordinal < FIELDS.length && (lastRecords == null || lastRecords[ordinal] == recordIndex)) {
+                    field = FIELDS[ordinal];
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public ReportField getField() {
+            return field;
+        }
+
+        /**
+         * @return Index of the current record in the report.
+         */
+        int getRecordIndex() {
+            return recordIndex;
+        }
+
+        @Override
+        public Reader getValue() {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return new InputStreamReader(value, "UTF-8"); //$NON-NLS-1$
+            } catch (UnsupportedEncodingException e) {
+                // UTF-8 is always supported.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @return The whole value of the current field, or null.
+         * @throws IOException
+         *             if the value could not be read.
+         */
+        String getValueAsString() throws IOException {
+            if (value == null) {
+                return null;
+            }
+            // The length of a report read from a stream is not checked against
+            // its size: only allocate what is actually read.
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(value.getRemaining(),
+                    ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES));
+            final byte[] buffer = new byte[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+            int count;
+            while ((count = value.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, count);
+            }
+            if (value.getRemaining() > 0) {
+                throw new EOFException("Corrupted crash report : truncated record " + recordIndex);
+            }
+            value = null;
+            return bytes.toString("UTF-8"); //$NON-NLS-1$
+        }
+
+        @Override
+        public void close() throws IOException {
+            data.close();
+        }
+    }
 }
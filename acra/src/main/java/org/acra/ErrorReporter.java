@@ -34,19 +34,31 @@ import org.acra.collector.CrashReportData;
 import org.acra.collector.CrashReportDataFactory;
 import org.acra.sender.EmailIntentSender;
 import org.acra.sender.GoogleFormSender;
+import org.acra.sender.HttpBatchPostSender;
 import org.acra.sender.HttpPostSender;
 import org.acra.sender.ReportSender;
+import org.acra.sender.ResumableHttpPostSender;
 import org.acra.util.PackageManagerWrapper;
 import org.acra.util.ToastSender;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.acra.ACRA.LOG_TAG;
 import static org.acra.ReportField.IS_SILENT;
+import static org.acra.ReportField.RECONSTRUCTED;
+import static org.acra.ReportField.REPORT_ID;
+import static org.acra.ReportField.STACK_TRACE;
+import static org.acra.ReportField.USER_CRASH_DATE;
 
 /**
  * <p>
@@ -86,21 +98,24 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
 
     private final CrashReportDataFactory crashReportDataFactory;
 
-    private final CrashReportFileNameParser fileNameParser = new CrashReportFileNameParser();
+    /**
+     * Runs the passes sending pending reports, one at a time.
+     */
+    private final SendScheduler sendScheduler;
 
     // A reference to the system's previous default UncaughtExceptionHandler
     // kept in order to execute the default exception handling after sending the
     // report.
     private final Thread.UncaughtExceptionHandler mDfltExceptionHandler;
 
-    private Thread brokenThread;
-    private Throwable unhandledThrowable;
-
     /**
-     * This is used to wait for the crash toast to end it's display duration
-     * before killing the Application.
+     * Area in which OutOfMemoryError stack traces are written, null if
+     * disabled.
      */
-    private static boolean toastWaitEnded = true;
+    private final OomCrashArea oomCrashArea;
+
+    private Thread brokenThread;
+    private Throwable unhandledThrowable;
 
     /**
      * Can only be constructed from within this class.
@@ -129,6 +144,13 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
         appStartDate.setToNow();
 
         crashReportDataFactory = new CrashReportDataFactory(mContext, prefs, appStartDate, initialConfiguration);
+        sendScheduler = new SendScheduler(mContext, mReportSenders);
+
+        // Allocated now, there may not be enough memory left when needed.
+        oomCrashArea = OomCrashArea.open(mContext, ACRA.getConfig().oomCrashAreaSize());
+        if (oomCrashArea != null) {
+            oomCrashArea.setProcessFields(crashReportDataFactory.createProcessData());
+        }
 
         // If mDfltExceptionHandler is not null, initialization is already done.
         // Don't do it twice to avoid losing the original handler.
@@ -299,6 +321,11 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
             brokenThread = t;
             unhandledThrowable = e;
 
+            if (e instanceof OutOfMemoryError && oomCrashArea != null) {
+                // Written first, building the complete report may fail.
+                oomCrashArea.write(e);
+            }
+
             Log.e(ACRA.LOG_TAG,
                     "ACRA caught a " + e.getClass().getSimpleName() + " exception for " + mContext.getPackageName()
                             + ". Building report.");
@@ -368,18 +395,17 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
     }
 
     /**
-     * Starts a Thread to start sending outstanding error reports.
+     * Schedules a pass sending outstanding error reports. If a pass is already
+     * waiting to start, this request is merged into it.
      * 
      * @param onlySendSilentReports
      *            If true then only send silent reports.
      * @param approveReportsFirst
      *            If true then approve unapproved reports first.
-     * @return SendWorker that will be sending the report.s
+     * @return Future completed once the reports have been sent.
      */
-    SendWorker startSendingReports(boolean onlySendSilentReports, boolean approveReportsFirst) {
-        final SendWorker worker = new SendWorker(mContext, mReportSenders, onlySendSilentReports, approveReportsFirst);
-        worker.start();
-        return worker;
+    Future<?> startSendingReports(boolean onlySendSilentReports, boolean approveReportsFirst) {
+        return sendScheduler.schedule(onlySendSilentReports, approveReportsFirst);
     }
 
     /**
@@ -395,6 +421,10 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
      */
     private void checkReportsOnApplicationStart() {
 
+        // Recover reports which were being written when the process died.
+        recoverPartialReports();
+        convertOomCrashArea();
+
         // Delete any old unsent reports if this is a newer version of the app
         // than when we last started.
         final long lastVersionNr = prefs.getInt(ACRA.PREF_LAST_VERSION_NR, 0);
@@ -421,10 +451,10 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
             deletePendingNonApprovedReports(true);
         }
 
-        final CrashReportFinder reportFinder = new CrashReportFinder(mContext);
-        String[] filesList = reportFinder.getCrashReportFiles();
+        final CrashReportIndex reportIndex = CrashReportIndex.getInstance(mContext);
+        List<CrashReportIndex.Entry> reports = reportIndex.getEntries();
 
-        if (filesList != null && filesList.length > 0) {
+        if (!reports.isEmpty()) {
             // Immediately send reports for SILENT and TOAST modes.
             // Immediately send reports in NOTIFICATION mode only if they are
             // all silent or approved.
@@ -434,8 +464,8 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
 
             ReportingInteractionMode reportingInteractionMode = ACRA.getConfig().mode();
 
-            filesList = reportFinder.getCrashReportFiles();
-            final boolean onlySilentOrApprovedReports = containsOnlySilentOrApprovedReports(filesList);
+            reports = reportIndex.getEntries();
+            final boolean onlySilentOrApprovedReports = containsOnlySilentOrApprovedReports(reports);
 
             if (reportingInteractionMode == ReportingInteractionMode.SILENT
                     || reportingInteractionMode == ReportingInteractionMode.TOAST
@@ -453,7 +483,7 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
                 // NOTIFICATION mode there are unapproved reports to send
                 // Display the notification.
                 // The user comment will be associated to the latest report
-                notifySendReport(getLatestNonSilentReport(filesList));
+                notifySendReport(getLatestNonSilentReport(reports));
             } else if (ACRA.getConfig().mode() == ReportingInteractionMode.DIALOG) {
                 // DIALOG mode: the dialog is always displayed because it has
                 // been put on the task stack before killing the app.
@@ -461,12 +491,80 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
                 // with the back button.
                 // As there are unapproved reports to send, display the dialog.
                 // The user comment will be associated to the latest report
-                notifyDialog(getLatestNonSilentReport(filesList));
+                notifyDialog(getLatestNonSilentReport(reports));
             }
 
         }
     }
 
+    /**
+     * Recovers report files whose writing has been interrupted by the death of
+     * the process. Partial reports still holding the crash stack trace are
+     * stored again as complete reports, the others are deleted. The reports
+     * index is first reconciled with the report files, from the same listing
+     * of the application files directory.
+     */
+    private void recoverPartialReports() {
+        final List<String> reportFileNames = new ArrayList<String>();
+        final List<String> partialFileNames = new ArrayList<String>();
+        for (String fileName : new CrashReportFinder(mContext).getAllReportFiles()) {
+            if (fileName.endsWith(ACRAConstants.PARTIAL_REPORTFILE_SUFFIX)) {
+                partialFileNames.add(fileName);
+            } else {
+                reportFileNames.add(fileName);
+            }
+        }
+
+        // A report stored by a process which died before indexing it would
+        // never be sent otherwise.
+        CrashReportIndex.getInstance(mContext).reconcile(reportFileNames.toArray(new String[reportFileNames.size()]));
+
+        final CrashReportPersister persister = new CrashReportPersister(mContext);
+        for (String partialFileName : partialFileNames) {
+            final String reportFileName = partialFileName.substring(0, partialFileName.length()
+                    - ACRAConstants.PARTIAL_REPORTFILE_SUFFIX.length());
+            try {
+                final CrashReportData crashData = persister.loadPartial(partialFileName);
+                if (crashData.containsKey(STACK_TRACE) && !new File(mContext.getFilesDir(), reportFileName).exists()) {
+                    Log.i(LOG_TAG, "Recovering partially written report " + reportFileName);
+                    persister.store(crashData, reportFileName);
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Could not recover partially written report " + partialFileName, e);
+            }
+
+            final File partialFile = new File(mContext.getFilesDir(), partialFileName);
+            if (partialFile.exists() && !partialFile.delete()) {
+                Log.e(LOG_TAG, "Could not delete partially written report : " + partialFile);
+            }
+        }
+    }
+
+    /**
+     * Stores the OutOfMemoryError written to the crash area, if its complete
+     * report could not be stored, as a normal report.
+     */
+    private void convertOomCrashArea() {
+        if (oomCrashArea == null || !oomCrashArea.isWritten()) {
+            return;
+        }
+
+        Log.i(LOG_TAG, "Converting OutOfMemoryError crash area to a report.");
+        final long crashDate = oomCrashArea.getCrashDate();
+        // Only what was written by the crashed process, the fields collected
+        // now would describe this one.
+        final CrashReportData crashData = oomCrashArea.getFields();
+        crashData.put(REPORT_ID, UUID.randomUUID().toString());
+        final Time date = new Time();
+        date.set(crashDate);
+        crashData.put(USER_CRASH_DATE, date.format3339(false));
+        crashData.put(RECONSTRUCTED, "true");
+
+        if (saveCrashReportFile("" + crashDate + ACRAConstants.REPORTFILE_EXTENSION, crashData) != null) {
+            oomCrashArea.clear();
+        }
+    }
+
     /**
      * Delete all pending non approved reports.
      * 
@@ -579,12 +677,27 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
         final CrashReportData crashReportData = crashReportDataFactory.createCrashData(e, forceSilentReport,
                 brokenThread);
 
+        if (forceSilentReport && !endApplication && ACRA.getConfig().journalSilentReports()
+                && appendToJournal(crashReportData)) {
+            Log.d(ACRA.LOG_TAG, "About to start ReportSenderWorker from #handleException");
+            startSendingReports(sendOnlySilentReports, true);
+            return;
+        }
+
         // Always write the report file
 
-        final String reportFileName = getReportFileName(crashReportData);
-        saveCrashReportFile(reportFileName, crashReportData);
+        final String newFileName = getReportFileName(crashReportData);
+        final String savedFileName = saveCrashReportFile(newFileName, crashReportData);
+        if (savedFileName != null && e instanceof OutOfMemoryError && oomCrashArea != null) {
+            // The complete report has been stored.
+            oomCrashArea.clear();
+        }
+        // A duplicate crash is stored in the report of its first occurrence.
+        final String reportFileName = savedFileName != null ? savedFileName : newFileName;
 
-        SendWorker sender = null;
+        Future<?> sender = null;
+        final long sendDeadline = ACRA.getConfig().crashSendDeadline() > 0 ? System.currentTimeMillis()
+                + ACRA.getConfig().crashSendDeadline() : 0;
 
         if (reportingInteractionMode == ReportingInteractionMode.SILENT
                 || reportingInteractionMode == ReportingInteractionMode.TOAST
@@ -607,12 +720,14 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
         // notifyDialog(reportFileName);
         // }
 
+        // This is used to wait for the crash toast to end it's display duration
+        // before killing the Application.
+        final CountDownLatch toastWaitEnded = new CountDownLatch(shouldDisplayToast ? 1 : 0);
         if (shouldDisplayToast) {
             // A toast is being displayed, we have to wait for its end before
             // doing anything else.
-            // The toastWaitEnded flag will be checked before any other
+            // The toastWaitEnded latch will be awaited before any other
             // operation.
-            toastWaitEnded = false;
             new Thread() {
 
                 @Override
@@ -632,15 +747,15 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
                         currentTime.setToNow();
                         elapsedTimeInMillis = currentTime.toMillis(false) - beforeWaitInMillis;
                     }
-                    toastWaitEnded = true;
+                    toastWaitEnded.countDown();
                 }
             }.start();
         }
 
         // start an AsyncTask waiting for the end of the sender
-        // call endApplication() in onPostExecute(), only when (toastWaitEnded
-        // == true)
-        final SendWorker worker = sender;
+        // call endApplication() in onPostExecute(), only when toastWaitEnded
+        // has been counted down
+        final Future<?> worker = sender;
         final boolean showDirectDialog = reportingInteractionMode == ReportingInteractionMode.DIALOG;
 
         new Thread() {
@@ -650,11 +765,26 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
                 // We have to wait for BOTH the toast display wait AND
                 // the worker job to be completed.
                 Log.d(LOG_TAG, "Waiting for Toast + worker...");
-                while (!toastWaitEnded || (worker != null && worker.isAlive())) {
+                try {
+                    toastWaitEnded.await();
+                } catch (InterruptedException e1) {
+                    Log.e(LOG_TAG, "Error : ", e1);
+                }
+                if (worker != null) {
                     try {
-                        Thread.sleep(100);
+                        if (sendDeadline > 0) {
+                            worker.get(Math.max(0, sendDeadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                        } else {
+                            worker.get();
+                        }
                     } catch (InterruptedException e1) {
                         Log.e(LOG_TAG, "Error : ", e1);
+                    } catch (ExecutionException e1) {
+                        Log.e(LOG_TAG, "Error : ", e1);
+                    } catch (TimeoutException e1) {
+                        // Reports which have not been sent yet are still
+                        // stored, they will be sent on next launch.
+                        Log.w(LOG_TAG, "Reports could not be sent before the crash send deadline.");
                     }
                 }
 
@@ -758,35 +888,59 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
      *            report data. Used to store again a report with the addition of
      *            user comment. If null, the default current crash data are
      *            used.
+     * @return Name of the report file holding the report, which is the name
+     *         of an existing report if it is a duplicate, or null if it could
+     *         not be written.
      */
-    private void saveCrashReportFile(String fileName, CrashReportData crashData) {
+    private String saveCrashReportFile(String fileName, CrashReportData crashData) {
         try {
             Log.d(LOG_TAG, "Writing crash report file " + fileName + ".");
             final CrashReportPersister persister = new CrashReportPersister(mContext);
-            persister.store(crashData, fileName);
+            final String savedFileName = persister.storeOrCoalesce(crashData, fileName);
+            persister.evictReports(savedFileName);
+            return savedFileName;
         } catch (Exception e) {
             Log.e(LOG_TAG, "An error occurred while writing the report file...", e);
+            return null;
         }
     }
 
     /**
-     * Retrieve the most recently created "non silent" report from an array of
-     * report file names. A non silent is any report which has not been created
+     * Appends a silent report to the {@link CrashReportJournal}.
+     * 
+     * @param crashData
+     *            The report to append.
+     * @return true if the report has been appended, false if it has to be
+     *         written to its own file instead.
+     */
+    private boolean appendToJournal(CrashReportData crashData) {
+        try {
+            CrashReportJournal.getInstance(mContext).append(crashData);
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "An error occurred while appending the report to the journal...", e);
+            return false;
+        }
+    }
+
+    /**
+     * Retrieve the most recently created "non silent" report from a list of
+     * pending reports. A non silent is any report which has not been created
      * with {@link #handleSilentException(Throwable)}.
      * 
-     * @param filesList
-     *            An array of report file names.
+     * @param reports
+     *            Pending reports, oldest first.
      * @return The most recently created "non silent" report file name.
      */
-    private String getLatestNonSilentReport(String[] filesList) {
-        if (filesList != null && filesList.length > 0) {
-            for (int i = filesList.length - 1; i >= 0; i--) {
-                if (!fileNameParser.isSilent(filesList[i])) {
-                    return filesList[i];
+    private String getLatestNonSilentReport(List<CrashReportIndex.Entry> reports) {
+        if (reports != null && !reports.isEmpty()) {
+            for (int i = reports.size() - 1; i >= 0; i--) {
+                if (!reports.get(i).isSilent()) {
+                    return reports.get(i).getFileName();
                 }
             }
             // We should never have this result, but this should be secure...
-            return filesList[filesList.length - 1];
+            return reports.get(reports.size() - 1).getFileName();
         } else {
             return null;
         }
@@ -806,35 +960,29 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
             int nbOfLatestToKeep) {
         // TODO Check logic and instances where nbOfLatestToKeep = X, because
         // that might stop us from deleting any reports.
-        final CrashReportFinder reportFinder = new CrashReportFinder(mContext);
-        final String[] filesList = reportFinder.getCrashReportFiles();
-        Arrays.sort(filesList);
-        if (filesList != null) {
-            for (int iFile = 0; iFile < filesList.length - nbOfLatestToKeep; iFile++) {
-                final String fileName = filesList[iFile];
-                final boolean isReportApproved = fileNameParser.isApproved(fileName);
-                if ((isReportApproved && deleteApprovedReports) || (!isReportApproved && deleteNonApprovedReports)) {
-                    final File fileToDelete = new File(mContext.getFilesDir(), fileName);
-                    if (!fileToDelete.delete()) {
-                        Log.e(ACRA.LOG_TAG, "Could not delete report : " + fileToDelete);
-                    }
-                }
+        final CrashReportPersister persister = new CrashReportPersister(mContext);
+        final List<CrashReportIndex.Entry> reports = CrashReportIndex.getInstance(mContext).getEntries();
+        for (int iFile = 0; iFile < reports.size() - nbOfLatestToKeep; iFile++) {
+            final CrashReportIndex.Entry report = reports.get(iFile);
+            final boolean isReportApproved = report.isApproved();
+            if ((isReportApproved && deleteApprovedReports) || (!isReportApproved && deleteNonApprovedReports)) {
+                persister.delete(report.getFileName());
             }
         }
     }
 
     /**
-     * Checks if an array of reports files names contains only silent or
-     * approved reports.
+     * Checks if a list of pending reports contains only silent or approved
+     * reports.
      * 
-     * @param reportFileNames
-     *            Array of report locations to check.
+     * @param reports
+     *            Pending reports to check.
      * @return True if there are only silent or approved reports. False if there
      *         is at least one non-approved report.
      */
-    private boolean containsOnlySilentOrApprovedReports(String[] reportFileNames) {
-        for (String reportFileName : reportFileNames) {
-            if (!fileNameParser.isApproved(reportFileName)) {
+    private boolean containsOnlySilentOrApprovedReports(List<CrashReportIndex.Entry> reports) {
+        for (CrashReportIndex.Entry report : reports) {
+            if (!report.isApproved()) {
                 return false;
             }
         }
@@ -876,7 +1024,16 @@ public class ErrorReporter implements Thread.UncaughtExceptionHandler {
         // If formUri is set, instantiate a sender for a generic HTTP POST form
         // with default mapping.
         if (conf.formUri() != null && !"".equals(conf.formUri())) {
-            setReportSender(new HttpPostSender(null));
+            if (conf.sendReportsInBatches()) {
+                if (conf.uploadChunkSize() > 0) {
+                    Log.w(LOG_TAG, "uploadChunkSize is ignored, sendReportsInBatches is enabled: reports are posted in batches, not in chunks.");
+                }
+                setReportSender(new HttpBatchPostSender(null));
+            } else if (conf.uploadChunkSize() > 0) {
+                setReportSender(new ResumableHttpPostSender(null));
+            } else {
+                setReportSender(new HttpPostSender(null));
+            }
             return;
         }
 
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import org.acra.sender.BinaryReportEncoder;
+import org.acra.sender.FormReportEncoder;
+import org.acra.sender.JsonReportEncoder;
+import org.acra.sender.ReportEncoder;
+
+/**
+ * Defines the formats in which the default {@link org.acra.sender.HttpPostSender}
+ * posts reports to {@link org.acra.annotation.ReportsCrashes#formUri()}.
+ * <ul>
+ * <li>FORM: application/x-www-form-urlencoded parameters.</li>
+ * <li>JSON: a JSON object of strings.</li>
+ * <li>BINARY: length-prefixed UTF-8 values keyed by {@link ReportField}
+ * ordinal, see {@link BinaryReportEncoder}.</li>
+ * </ul>
+ */
+public enum HttpReportFormat {
+    /**
+     * application/x-www-form-urlencoded parameters. This is the historical
+     * format.
+     */
+    FORM(new FormReportEncoder()),
+    /**
+     * A JSON object of strings.
+     */
+    JSON(new JsonReportEncoder()),
+    /**
+     * Length-prefixed UTF-8 values keyed by {@link ReportField} ordinal.
+     */
+    BINARY(new BinaryReportEncoder());
+
+    private final ReportEncoder encoder;
+
+    private HttpReportFormat(ReportEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * @return The encoder writing reports in this format.
+     */
+    public ReportEncoder getEncoder() {
+        return encoder;
+    }
+}
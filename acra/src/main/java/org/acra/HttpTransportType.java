@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+/**
+ * Defines the HTTP client library used by {@link org.acra.util.HttpRequest}
+ * to post reports.
+ * <ul>
+ * <li>APACHE_HTTP_CLIENT: the Apache HttpClient bundled with Android.</li>
+ * <li>HTTP_URL_CONNECTION: {@link java.net.HttpURLConnection}.</li>
+ * </ul>
+ */
+public enum HttpTransportType {
+    /**
+     * The Apache HttpClient bundled with Android, with a connection pool
+     * shared by all the reports. Any HTTPS certificate is accepted. This is
+     * the historical library.
+     */
+    APACHE_HTTP_CLIENT,
+    /**
+     * {@link java.net.HttpURLConnection}, whose connections are pooled and
+     * kept alive by the platform and whose responses are transparently
+     * decompressed. HTTPS certificates are verified by the platform. Its
+     * connection pooling is only reliable from Android 2.3 (Gingerbread).
+     */
+    HTTP_URL_CONNECTION
+}
@@ -0,0 +1,341 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import org.acra.collector.CrashReportData;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Memory mapped file, allocated when ACRA is initialized, in which the stack
+ * trace of an {@link OutOfMemoryError} is written when there may not be enough
+ * memory left to build and store a complete report.
+ * <p>
+ * Writing the crash area does not build any String: characters are copied one
+ * by one to the mapped buffer. Along with the stack trace, the fields which
+ * describe the crashed process and are collected in advance with
+ * {@link #setProcessFields(CrashReportData)} are written. Its content is kept
+ * by the system when the process dies, and it is converted to a normal report
+ * on next application start.
+ * </p>
+ * <p>
+ * Layout: a state int ({@link #EMPTY} or {@link #WRITTEN}), the crash date in
+ * milliseconds (long), the position of the end of the records (int), then one
+ * record per field: the {@link ReportField} ordinal (int), the number of chars
+ * (int) and the value as UTF-16 chars. The stack trace is the first record.
+ * </p>
+ */
+final class OomCrashArea {
+
+    private static final String AREA_FILE_NAME = "ACRA-OOM-AREA";
+
+    private static final int EMPTY = 0;
+    /** "OOM2" */
+    private static final int WRITTEN = 0x4F4F4D32;
+
+    private static final int STATE_POSITION = 0;
+    private static final int DATE_POSITION = 4;
+    private static final int END_POSITION = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final String CAUSED_BY = "Caused by: ";
+    private static final String AT = "\tat ";
+    private static final String UNKNOWN_SOURCE = "Unknown Source";
+
+    private final MappedByteBuffer buffer;
+    private int position;
+    private ReportField[] processFields = new ReportField[0];
+    private String[] processValues = new String[0];
+
+    private OomCrashArea(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the crash area file, creating it if needed. An existing crash area
+     * keeps its content until {@link #clear()} is called.
+     *
+     * @param context
+     *            Context of the application.
+     * @param size
+     *            Size of the crash area in bytes. If 0 or less, the crash area
+     *            is disabled and any existing crash area file is deleted.
+     * @return The crash area, or null if it is disabled or could not be
+     *         mapped.
+     */
+    static OomCrashArea open(Context context, int size) {
+        return open(new File(context.getFilesDir(), AREA_FILE_NAME), size);
+    }
+
+    /**
+     * @param areaFile
+     *            The crash area file.
+     * @param size
+     *            Size of the crash area in bytes, 0 or less to delete it.
+     * @return The crash area, or null if it is disabled or could not be
+     *         mapped.
+     */
+    static OomCrashArea open(File areaFile, int size) {
+        if (size <= HEADER_SIZE + RECORD_HEADER_SIZE) {
+            if (areaFile.exists() && !areaFile.delete()) {
+                Log.w(LOG_TAG, "Could not delete OutOfMemoryError crash area : " + areaFile);
+            }
+            return null;
+        }
+
+        try {
+            final RandomAccessFile file = new RandomAccessFile(areaFile, "rw");
+            try {
+                if (file.length() != size) {
+                    file.setLength(size);
+                }
+                // The mapping stays valid once the file is closed.
+                return new OomCrashArea(file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not map OutOfMemoryError crash area " + areaFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if a crash has been written and not converted to a report
+     *         yet.
+     */
+    synchronized boolean isWritten() {
+        return buffer.getInt(STATE_POSITION) == WRITTEN;
+    }
+
+    /**
+     * @return The date of the written crash in milliseconds.
+     */
+    synchronized long getCrashDate() {
+        return buffer.getLong(DATE_POSITION);
+    }
+
+    /**
+     * Sets the fields written along with the stack trace of a crash. They have
+     * to describe the whole process, they are not collected again when the
+     * crash occurs.
+     * 
+     * @param fields
+     *            Fields collected when ACRA is initialized.
+     */
+    synchronized void setProcessFields(CrashReportData fields) {
+        final ReportField[] newFields = new ReportField[fields.size()];
+        final String[] newValues = new String[fields.size()];
+        int i = 0;
+        for (final Map.Entry<ReportField, String> field : fields.entrySet()) {
+            newFields[i] = field.getKey();
+            newValues[i] = field.getValue();
+            i++;
+        }
+        processFields = newFields;
+        processValues = newValues;
+    }
+
+    /**
+     * @return The written fields, the stack trace and the process fields which
+     *         fitted in the crash area.
+     */
+    synchronized CrashReportData getFields() {
+        final CrashReportData fields = new CrashReportData();
+        final ReportField[] reportFields = ReportField.values();
+        final int end = Math.min(buffer.getInt(END_POSITION), buffer.capacity());
+        int recordPosition = HEADER_SIZE;
+        while (recordPosition + RECORD_HEADER_SIZE <= end) {
+            final int ordinal = buffer.getInt(recordPosition);
+            final int length = buffer.getInt(recordPosition + 4);
+            final int valuePosition = recordPosition + RECORD_HEADER_SIZE;
+            if (ordinal < 0 || ordinal >= reportFields.length || length < 0 || length > (end - valuePosition) / 2) {
+                Log.w(LOG_TAG, "Corrupt OutOfMemoryError crash area record at " + recordPosition);
+                break;
+            }
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = buffer.getChar(valuePosition + i * 2);
+            }
+            fields.put(reportFields[ordinal], new String(chars));
+            recordPosition = valuePosition + length * 2;
+        }
+        return fields;
+    }
+
+    /**
+     * Marks the crash area as empty, once its content has been converted to a
+     * report.
+     */
+    synchronized void clear() {
+        buffer.putInt(STATE_POSITION, EMPTY);
+        buffer.putInt(END_POSITION, HEADER_SIZE);
+    }
+
+    /**
+     * Writes a crash to the area, its stack trace then the process fields.
+     * Whatever has been written when an error occurs, if the stack trace does
+     * not fit or if memory allocation still fails, is kept. The stack trace
+     * ends with the last frame which fits completely, and shortly after the
+     * causes start repeating if they loop. Process fields which do not fit
+     * completely are left out.
+     *
+     * @param th
+     *            Throwable that caused the crash.
+     */
+    synchronized void write(Throwable th) {
+        buffer.putInt(STATE_POSITION, EMPTY);
+        buffer.putLong(DATE_POSITION, System.currentTimeMillis());
+        buffer.putInt(HEADER_SIZE, ReportField.STACK_TRACE.ordinal());
+        position = HEADER_SIZE + RECORD_HEADER_SIZE;
+        try {
+            // The causes may loop: a second cursor, moving at half the speed,
+            // meets the first one in the loop (no allocation needed).
+            Throwable cause = th;
+            Throwable slowCause = th;
+            int causeCount = 0;
+            while (cause != null) {
+                if (causeCount > 0) {
+                    if (cause == slowCause) {
+                        break;
+                    }
+                    append(CAUSED_BY);
+                }
+                append(cause.getClass().getName());
+                final String message = cause.getMessage();
+                if (message != null) {
+                    append(": ");
+                    append(message);
+                }
+                append('\n');
+                final StackTraceElement[] elements = cause.getStackTrace();
+                for (int i = 0; i < elements.length; i++) {
+                    if (position + getLength(elements[i]) * 2 > buffer.capacity()) {
+                        // The area is full.
+                        return;
+                    }
+                    append(elements[i]);
+                }
+                cause = cause.getCause();
+                if (++causeCount % 2 == 0) {
+                    slowCause = slowCause.getCause();
+                }
+            }
+        } catch (Throwable t) {
+            // Keep whatever has been written.
+        } finally {
+            buffer.putInt(HEADER_SIZE + 4, (position - HEADER_SIZE - RECORD_HEADER_SIZE) / 2);
+            writeProcessFields();
+            buffer.putInt(END_POSITION, position);
+            buffer.putInt(STATE_POSITION, WRITTEN);
+        }
+    }
+
+    private void writeProcessFields() {
+        for (int i = 0; i < processFields.length; i++) {
+            final String value = processValues[i];
+            if (value == null) {
+                continue;
+            }
+            final int length = value.length();
+            if (position + RECORD_HEADER_SIZE + length * 2 > buffer.capacity()) {
+                continue;
+            }
+            buffer.putInt(position, processFields[i].ordinal());
+            buffer.putInt(position + 4, length);
+            position += RECORD_HEADER_SIZE;
+            append(value);
+        }
+    }
+
+    private void append(StackTraceElement element) {
+        append(AT);
+        append(element.getClassName());
+        append('.');
+        append(element.getMethodName());
+        append('(');
+        if (element.isNativeMethod()) {
+            append("Native Method");
+        } else {
+            final String fileName = element.getFileName();
+            append(fileName != null ? fileName : UNKNOWN_SOURCE);
+            final int lineNumber = element.getLineNumber();
+            if (fileName != null && lineNumber >= 0) {
+                append(':');
+                append(lineNumber);
+            }
+        }
+        append(')');
+        append('\n');
+    }
+
+    /**
+     * @return Number of chars written by {@link #append(StackTraceElement)}.
+     */
+    private static int getLength(StackTraceElement element) {
+        int length = AT.length() + element.getClassName().length() + 1 + element.getMethodName().length() + 3;
+        if (element.isNativeMethod()) {
+            return length + "Native Method".length();
+        }
+        final String fileName = element.getFileName();
+        length += fileName != null ? fileName.length() : UNKNOWN_SOURCE.length();
+        final int lineNumber = element.getLineNumber();
+        if (fileName != null && lineNumber >= 0) {
+            // The colon and the first digit, then the other digits.
+            length += 2;
+            for (int rest = lineNumber; rest >= 10; rest /= 10) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private void append(int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            append((char) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    private void append(String string) {
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            append(string.charAt(i));
+        }
+    }
+
+    private void append(char c) {
+        if (position + 2 <= buffer.capacity()) {
+            buffer.putChar(position, c);
+            position += 2;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+/**
+ * A report stored on the device which has not been sent yet, as seen by a
+ * {@link ReportEvictionPolicy}.
+ */
+public interface PendingReport {
+
+    /**
+     * @return Name of the report file.
+     */
+    String getFileName();
+
+    /**
+     * @return Creation time of the report in milliseconds.
+     */
+    long getTimestamp();
+
+    /**
+     * @return True if the report has been created with
+     *         {@link ErrorReporter#handleSilentException(Throwable)}.
+     */
+    boolean isSilent();
+
+    /**
+     * @return Size of the report file in bytes.
+     */
+    long getSize();
+
+    /**
+     * @return Number of times sending this report has been attempted.
+     */
+    int getAttempts();
+
+    /**
+     * @return {@link ReportFingerprint} of the report, identifying its crash,
+     *         or null if unknown.
+     */
+    String getFingerprint();
+
+    /**
+     * @return Number of occurrences of the crash held by the report.
+     */
+    int getOccurrences();
+
+    /**
+     * @return Version code of the application which created the report, 0
+     *         if unknown.
+     */
+    int getVersionCode();
+}
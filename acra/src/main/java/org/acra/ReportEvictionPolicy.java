@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Defines which pending reports are deleted first when there are more pending
+ * reports than allowed by
+ * {@link org.acra.annotation.ReportsCrashes#maxPendingReports()} or
+ * {@link org.acra.annotation.ReportsCrashes#maxPendingReportsSize()}.
+ * <p>
+ * Implementations must have a public no-argument constructor. The built-in
+ * policies are:
+ * </p>
+ * <ul>
+ * <li>{@link OldestFirst}: the oldest reports are deleted first.</li>
+ * <li>{@link KeepOnePerFingerprint}: older reports of a crash which has a more
+ * recent report are deleted first, then the oldest reports.</li>
+ * <li>{@link DropSilentFirst}: silent reports are deleted first, then the
+ * oldest reports.</li>
+ * </ul>
+ */
+public interface ReportEvictionPolicy {
+
+    /**
+     * @param reports
+     *            Pending reports, oldest first.
+     * @return The same reports, in the order in which they have to be deleted.
+     *         Reports left out are not deleted.
+     */
+    <T extends PendingReport> List<T> evictionOrder(List<T> reports);
+
+    /**
+     * The oldest reports are deleted first.
+     */
+    final class OldestFirst implements ReportEvictionPolicy {
+        @Override
+        public <T extends PendingReport> List<T> evictionOrder(List<T> reports) {
+            return reports;
+        }
+    }
+
+    /**
+     * Older reports of a crash which has a more recent report are deleted
+     * first, then the oldest reports. Crashes are identified by their
+     * fingerprint. When
+     * {@link org.acra.annotation.ReportsCrashes#coalesceDuplicateReports()} is
+     * enabled, duplicates are already merged and only a silent and a non
+     * silent report of the same crash can be found.
+     */
+    final class KeepOnePerFingerprint implements ReportEvictionPolicy {
+        @Override
+        public <T extends PendingReport> List<T> evictionOrder(List<T> reports) {
+            final List<T> duplicates = new ArrayList<T>();
+            final List<T> others = new ArrayList<T>();
+            final Set<String> newerFingerprints = new HashSet<String>();
+            for (int i = reports.size() - 1; i >= 0; i--) {
+                final T report = reports.get(i);
+                final String fingerprint = report.getFingerprint();
+                if (fingerprint != null && !newerFingerprints.add(fingerprint)) {
+                    duplicates.add(0, report);
+                } else {
+                    others.add(0, report);
+                }
+            }
+            duplicates.addAll(others);
+            return duplicates;
+        }
+    }
+
+    /**
+     * Silent reports, created with
+     * {@link ErrorReporter#handleSilentException(Throwable)}, are deleted
+     * first, then the oldest reports.
+     */
+    final class DropSilentFirst implements ReportEvictionPolicy {
+        @Override
+        public <T extends PendingReport> List<T> evictionOrder(List<T> reports) {
+            final List<T> silent = new ArrayList<T>();
+            final List<T> others = new ArrayList<T>();
+            for (T report : reports) {
+                (report.isSilent() ? silent : others).add(report);
+            }
+            silent.addAll(others);
+            return silent;
+        }
+    }
+}
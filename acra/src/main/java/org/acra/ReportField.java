@@ -206,5 +206,32 @@ public enum ReportField {
     /**
      * Retrieves details of the failing thread (id, name, group name).
      */
-    THREAD_DETAILS
+    THREAD_DETAILS,
+    /**
+     * Number of times the same crash occurred before the report was sent, when
+     * {@link ReportsCrashes#coalesceDuplicateReports()} is enabled. Only
+     * present once the crash occurred more than once.
+     */
+    OCCURRENCES,
+    /**
+     * Date of the last occurrence of the crash, when
+     * {@link ReportsCrashes#coalesceDuplicateReports()} is enabled. The date of
+     * the first occurrence is {@link #USER_CRASH_DATE}. Only present once the
+     * crash occurred more than once.
+     */
+    LAST_CRASH_DATE,
+    /**
+     * Hash identifying the crash, computed from the {@link #STACK_TRACE} and
+     * the {@link #APP_VERSION_CODE}. Only present in the summaries sent when
+     * {@link ReportsCrashes#deferredSending()} is enabled.
+     */
+    STACK_TRACE_HASH,
+    /**
+     * True if the report has been rebuilt on next application start from what
+     * could be written when the application crashed, see
+     * {@link ReportsCrashes#oomCrashAreaSize()}. It only holds the
+     * {@link #STACK_TRACE} and the fields describing the crashed process which
+     * were collected in advance.
+     */
+    RECONSTRUCTED
 }
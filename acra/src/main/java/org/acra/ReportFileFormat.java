@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+/**
+ * Defines the formats ACRA can use to store pending reports in the
+ * application private directory. Whatever the configured format, reports
+ * written in any of these formats can be read back, so that changing the
+ * format does not lose reports stored by a previous version.
+ * <ul>
+ * <li>TEXT: escaped ISO-8859-1 key=value lines, similar to
+ * {@link java.util.Properties} files.</li>
+ * <li>BINARY: a version header followed by length-prefixed UTF-8 values keyed
+ * by {@link ReportField} ordinal.</li>
+ * </ul>
+ */
+public enum ReportFileFormat {
+    /**
+     * Escaped ISO-8859-1 key=value lines. This is the historical ACRA report
+     * file format.
+     */
+    TEXT,
+    /**
+     * Length-prefixed UTF-8 fields keyed by {@link ReportField} ordinal. Values
+     * are written and read without any per-character escaping, which is much
+     * faster for reports including large logcat or dropbox contents.
+     */
+    BINARY
+}
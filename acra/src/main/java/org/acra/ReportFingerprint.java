@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ReportField.APP_VERSION_CODE;
+import static org.acra.ReportField.STACK_TRACE;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.acra.collector.CrashReportData;
+
+/**
+ * Responsible for identifying reports of the same crash.
+ * <p>
+ * The fingerprint of a report is a hash of its {@link ReportField#STACK_TRACE}
+ * and {@link ReportField#APP_VERSION_CODE}. Exception messages and the
+ * "... n more" lines are left out of the stack trace, as they often hold
+ * values which differ from one occurrence of a crash to the next.
+ * </p>
+ */
+final class ReportFingerprint {
+
+    private static final String CAUSED_BY = "Caused by: ";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private ReportFingerprint() {
+    }
+
+    /**
+     * @param crashData
+     *            A report.
+     * @return The fingerprint of the report, or null if it has no stack trace.
+     */
+    static String of(CrashReportData crashData) {
+        final String stackTrace = crashData.get(STACK_TRACE);
+        if (stackTrace == null) {
+            return null;
+        }
+
+        final StringBuilder normalized = new StringBuilder(stackTrace.length());
+        boolean exceptionLine = true;
+        for (String line : stackTrace.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("at ")) {
+                normalized.append(line).append('\n');
+                exceptionLine = false;
+            } else if (exceptionLine || line.startsWith(CAUSED_BY)) {
+                // Keep the exception class, not its message.
+                final int messageStart = line.indexOf(':', line.startsWith(CAUSED_BY) ? CAUSED_BY.length() : 0);
+                normalized.append(messageStart >= 0 ? line.substring(0, messageStart) : line).append('\n');
+                exceptionLine = false;
+            }
+        }
+        normalized.append(crashData.get(APP_VERSION_CODE));
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+                    normalized.toString().getBytes("UTF-8"));
+            final char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always available.
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Defines in which order pending reports are sent, which matters when they
+ * can't all be sent at once because of
+ * {@link org.acra.annotation.ReportsCrashes#maxReportsSentPerMinute()} or
+ * failures.
+ * <ul>
+ * <li>OLDEST_FIRST: reports are sent in the order they have been created.</li>
+ * <li>PRIORITY: crash reports are sent before silent reports, then reports of
+ * the current application version, then the newest reports, then the
+ * smallest ones.</li>
+ * </ul>
+ */
+public enum ReportSendOrder {
+    /**
+     * Reports are sent in the order they have been created.
+     */
+    OLDEST_FIRST {
+        @Override
+        List<CrashReportIndex.Entry> sendOrder(List<CrashReportIndex.Entry> reports, int currentVersionCode) {
+            return reports;
+        }
+    },
+    /**
+     * Crash reports are sent before silent reports, created with
+     * {@link ErrorReporter#handleSilentException(Throwable)}. Then reports of
+     * the current application version are sent first, then the newest
+     * reports, then the smallest ones.
+     */
+    PRIORITY {
+        @Override
+        List<CrashReportIndex.Entry> sendOrder(List<CrashReportIndex.Entry> reports, final int currentVersionCode) {
+            final List<CrashReportIndex.Entry> sorted = new ArrayList<CrashReportIndex.Entry>(reports);
+            Collections.sort(sorted, new Comparator<CrashReportIndex.Entry>() {
+                public int compare(CrashReportIndex.Entry lhs, CrashReportIndex.Entry rhs) {
+                    if (lhs.isSilent() != rhs.isSilent()) {
+                        return lhs.isSilent() ? 1 : -1;
+                    }
+                    final boolean lhsCurrent = lhs.getVersionCode() == currentVersionCode;
+                    final boolean rhsCurrent = rhs.getVersionCode() == currentVersionCode;
+                    if (lhsCurrent != rhsCurrent) {
+                        return lhsCurrent ? -1 : 1;
+                    }
+                    if (lhs.getTimestamp() != rhs.getTimestamp()) {
+                        return lhs.getTimestamp() > rhs.getTimestamp() ? -1 : 1;
+                    }
+                    if (lhs.getSize() != rhs.getSize()) {
+                        return lhs.getSize() < rhs.getSize() ? -1 : 1;
+                    }
+                    return 0;
+                }
+            });
+            return sorted;
+        }
+    };
+
+    /**
+     * @param reports
+     *            Pending reports, oldest first.
+     * @param currentVersionCode
+     *            Version code of the running application, 0 if unknown.
+     * @return The same reports, in the order in which they have to be sent.
+     */
+    abstract List<CrashReportIndex.Entry> sendOrder(List<CrashReportIndex.Entry> reports, int currentVersionCode);
+}
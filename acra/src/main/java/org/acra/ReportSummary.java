@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ReportField.APP_VERSION_CODE;
+import static org.acra.ReportField.APP_VERSION_NAME;
+import static org.acra.ReportField.IS_SILENT;
+import static org.acra.ReportField.PACKAGE_NAME;
+import static org.acra.ReportField.REPORT_ID;
+import static org.acra.ReportField.STACK_TRACE_HASH;
+import static org.acra.ReportField.USER_CRASH_DATE;
+
+import org.acra.collector.CrashReportData;
+
+/**
+ * Responsible for building the small report telling that a crash happened,
+ * sent right away when full reports are deferred.
+ * <p>
+ * The summary holds the {@link ReportField#REPORT_ID} of the full report, which
+ * is sent later, the application version, the crash date and a
+ * {@link ReportField#STACK_TRACE_HASH} identifying the crash.
+ * </p>
+ */
+final class ReportSummary {
+
+    private static final ReportField[] SUMMARY_FIELDS = { REPORT_ID, PACKAGE_NAME, APP_VERSION_CODE,
+            APP_VERSION_NAME, USER_CRASH_DATE, IS_SILENT };
+
+    private ReportSummary() {
+    }
+
+    /**
+     * @param crashData
+     *            A full report.
+     * @return The summary of the report.
+     */
+    static CrashReportData of(CrashReportData crashData) {
+        final CrashReportData summary = new CrashReportData();
+        for (ReportField field : SUMMARY_FIELDS) {
+            final String value = crashData.get(field);
+            if (value != null) {
+                summary.put(field, value);
+            }
+        }
+        final String hash = ReportFingerprint.of(crashData);
+        if (hash != null) {
+            summary.put(STACK_TRACE_HASH, hash);
+        }
+        return summary;
+    }
+}
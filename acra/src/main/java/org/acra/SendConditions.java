@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import org.acra.util.PackageManagerWrapper;
+
+import android.Manifest.permission;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+/**
+ * Responsible for telling whether full reports can be sent now, when
+ * {@link org.acra.annotation.ReportsCrashes#deferredSending()} is enabled:
+ * while the device is charging or connected to a Wi-Fi network.
+ */
+final class SendConditions {
+
+    /**
+     * Extra of the {@link Intent#ACTION_BATTERY_CHANGED} broadcast holding
+     * the power source, 0 when running on battery.
+     */
+    private static final String EXTRA_PLUGGED = "plugged";
+
+    private SendConditions() {
+    }
+
+    /**
+     * @param context
+     *            ApplicationContext in which the reports are being sent.
+     * @return true if full reports can be sent now.
+     */
+    static boolean allowFullReports(Context context) {
+        return isCharging(context) || isOnUnmeteredNetwork(context);
+    }
+
+    private static boolean isCharging(Context context) {
+        try {
+            // ACTION_BATTERY_CHANGED is sticky, no receiver is needed to
+            // read its last value.
+            final Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            return battery != null && battery.getIntExtra(EXTRA_PLUGGED, 0) != 0;
+        } catch (RuntimeException e) {
+            Log.w(LOG_TAG, "Could not read the battery state", e);
+            return false;
+        }
+    }
+
+    private static boolean isOnUnmeteredNetwork(Context context) {
+        if (!new PackageManagerWrapper(context).hasPermission(permission.ACCESS_NETWORK_STATE)) {
+            // The network type can't be known, don't keep the reports forever.
+            Log.w(LOG_TAG, context.getPackageName() + " should be granted permission "
+                    + permission.ACCESS_NETWORK_STATE
+                    + " to defer sending reports until a Wi-Fi network is available.");
+            return true;
+        }
+        final ConnectivityManager connectivity = (ConnectivityManager) context
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        final NetworkInfo network = connectivity == null ? null : connectivity.getActiveNetworkInfo();
+        return network != null && network.isConnected() && network.getType() == ConnectivityManager.TYPE_WIFI;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import org.acra.annotation.ReportsCrashes;
+import org.acra.util.TokenBucket;
+
+import android.content.SharedPreferences;
+
+/**
+ * Limits the number of reports and bytes sent per minute, whatever the pass
+ * sending them, with one {@link TokenBucket} for reports and one for bytes.
+ * The state of the buckets is kept in the ACRA SharedPreferences so that
+ * restarting the application does not refill them.
+ */
+final class SendRateLimiter {
+
+    private static final String PREF_REPORT_TOKENS = "acra.rateLimit.reportTokens";
+    private static final String PREF_BYTE_TOKENS = "acra.rateLimit.byteTokens";
+    private static final String PREF_LAST_REFILL_TIME = "acra.rateLimit.lastRefillTime";
+
+    private static SendRateLimiter instance;
+
+    private final SharedPreferences prefs;
+    private final TokenBucket reports;
+    private final TokenBucket bytes;
+
+    private SendRateLimiter(SharedPreferences prefs, ReportsCrashes config) {
+        this.prefs = prefs;
+        final long now = System.currentTimeMillis();
+        final long lastRefillTime = prefs.getLong(PREF_LAST_REFILL_TIME, now);
+        final int reportsPerMinute = config.maxReportsSentPerMinute();
+        final int bytesPerMinute = config.maxBytesSentPerMinute();
+        reports = reportsPerMinute <= 0 ? null : new TokenBucket(Math.max(1, config.sendBurstSize()),
+                reportsPerMinute, prefs.getFloat(PREF_REPORT_TOKENS, config.sendBurstSize()), lastRefillTime);
+        bytes = bytesPerMinute <= 0 ? null : new TokenBucket(bytesPerMinute, bytesPerMinute, prefs.getFloat(
+                PREF_BYTE_TOKENS, bytesPerMinute), lastRefillTime);
+    }
+
+    /**
+     * @return The rate limiter shared by all the passes sending reports.
+     */
+    static synchronized SendRateLimiter getInstance() {
+        if (instance == null) {
+            instance = new SendRateLimiter(ACRA.getACRASharedPreferences(), ACRA.getConfig());
+        }
+        return instance;
+    }
+
+    /**
+     * Takes the tokens required to send a report if they are available.
+     *
+     * @param size
+     *            Size of the report in bytes.
+     * @return true if the report can be sent now, false if it has to wait
+     *         until {@link #getAvailableTime(long)}.
+     */
+    synchronized boolean tryAcquire(long size) {
+        final long now = System.currentTimeMillis();
+        if ((reports != null && reports.getAvailableTime(1, now) > now)
+                || (bytes != null && bytes.getAvailableTime(size, now) > now)) {
+            return false;
+        }
+        if (reports != null) {
+            reports.tryConsume(1, now);
+        }
+        if (bytes != null) {
+            bytes.tryConsume(size, now);
+        }
+        save(now);
+        return true;
+    }
+
+    /**
+     * @param size
+     *            Size of a report in bytes.
+     * @return The time in milliseconds at which the report can be sent.
+     */
+    synchronized long getAvailableTime(long size) {
+        final long now = System.currentTimeMillis();
+        long time = now;
+        if (reports != null) {
+            time = Math.max(time, reports.getAvailableTime(1, now));
+        }
+        if (bytes != null) {
+            time = Math.max(time, bytes.getAvailableTime(size, now));
+        }
+        return time;
+    }
+
+    private void save(long now) {
+        final SharedPreferences.Editor editor = prefs.edit();
+        if (reports != null) {
+            editor.putFloat(PREF_REPORT_TOKENS, (float) reports.getTokens());
+        }
+        if (bytes != null) {
+            editor.putFloat(PREF_BYTE_TOKENS, (float) bytes.getTokens());
+        }
+        editor.putLong(PREF_LAST_REFILL_TIME, now);
+        editor.commit();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.acra.sender.ReportSender;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Runs the {@link SendWorker} passes over pending reports on a single thread,
+ * so that two passes never send or delete the same report.
+ * <p>
+ * While a pass is waiting for the previous one to complete, new requests for a
+ * pass are merged into it instead of queuing more passes.
+ * </p>
+ */
+final class SendScheduler {
+
+    private final Context context;
+    private final List<ReportSender> reportSenders;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "ACRA-SendWorker");
+            // Must not keep the process alive once the application is done.
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Pass which has been scheduled but has not started yet, or null.
+     */
+    private Pass pendingPass;
+
+    /**
+     * Delayed pass retrying to send reports which could not be sent, or null.
+     */
+    private ScheduledFuture<?> retry;
+    private long retryTime;
+
+    /**
+     * @param context
+     *            ApplicationContext in which the reports are being sent.
+     * @param reportSenders
+     *            List of ReportSender to use to send the crash reports. It is
+     *            read at the start of each pass.
+     */
+    SendScheduler(Context context, List<ReportSender> reportSenders) {
+        this.context = context;
+        this.reportSenders = reportSenders;
+    }
+
+    /**
+     * Schedules a pass over pending reports, or merges this request into the
+     * pass which is already waiting to start.
+     *
+     * @param onlySendSilentReports
+     *            If true then only send silent reports.
+     * @param approveReportsFirst
+     *            If true then approve unapproved reports first.
+     * @return Future completed once the pass has ended.
+     */
+    synchronized Future<?> schedule(boolean onlySendSilentReports, boolean approveReportsFirst) {
+        if (pendingPass != null) {
+            pendingPass.onlySendSilentReports &= onlySendSilentReports;
+            pendingPass.approveReportsFirst |= approveReportsFirst;
+            return pendingPass.future;
+        }
+
+        pendingPass = new Pass(onlySendSilentReports, approveReportsFirst);
+        pendingPass.future = executor.submit(pendingPass);
+        return pendingPass.future;
+    }
+
+    /**
+     * Schedules a pass at the time a report which could not be sent may be
+     * sent again, unless an earlier retry is already scheduled.
+     */
+    private synchronized void scheduleRetry(long time, final boolean onlySendSilentReports) {
+        if (retry != null && !retry.isDone() && retryTime <= time) {
+            return;
+        }
+        if (retry != null) {
+            retry.cancel(false);
+        }
+
+        retryTime = time;
+        retry = executor.schedule(new Runnable() {
+            public void run() {
+                schedule(onlySendSilentReports, false);
+            }
+        }, Math.max(0, time - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private final class Pass implements Runnable {
+
+        private boolean onlySendSilentReports;
+        private boolean approveReportsFirst;
+        private Future<?> future;
+
+        Pass(boolean onlySendSilentReports, boolean approveReportsFirst) {
+            this.onlySendSilentReports = onlySendSilentReports;
+            this.approveReportsFirst = approveReportsFirst;
+        }
+
+        public void run() {
+            final boolean sendOnlySilent;
+            final boolean approve;
+            synchronized (SendScheduler.this) {
+                // Later requests will need a new pass.
+                pendingPass = null;
+                sendOnlySilent = onlySendSilentReports;
+                approve = approveReportsFirst;
+            }
+            try {
+                final SendWorker worker = new SendWorker(context, reportSenders, sendOnlySilent, approve);
+                worker.run();
+                if (worker.getRetryTime() > 0) {
+                    scheduleRetry(worker.getRetryTime(), sendOnlySilent);
+                }
+            } catch (Throwable t) {
+                // Nobody reads the Future of most passes.
+                Log.e(LOG_TAG, "Error while sending reports", t);
+            }
+        }
+    }
+}
@@ -19,28 +19,58 @@ import static org.acra.ACRA.LOG_TAG;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.acra.annotation.ReportsCrashes;
 import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+import org.acra.sender.BatchReportSender;
 import org.acra.sender.ReportSender;
+import org.acra.sender.ReportReadException;
 import org.acra.sender.ReportSenderException;
+import org.acra.sender.StreamingReportSender;
+import org.acra.util.HttpRequest;
+import org.acra.util.PackageManagerWrapper;
 
 import android.content.Context;
+import android.content.pm.PackageInfo;
 import android.util.Log;
 
 /**
- * Checks and send reports on a separate Thread.
+ * Checks and send reports. Passes are run one at a time by the
+ * {@link SendScheduler}.
  * 
  * @author Kevin Gaudin
  */
-final class SendWorker extends Thread {
+final class SendWorker implements Runnable {
+
+    private static final Random RANDOM = new Random();
 
     private final Context context;
     private final boolean sendOnlySilentReports;
     private final boolean approvePendingReports;
-    private final CrashReportFileNameParser fileNameParser = new CrashReportFileNameParser();
     private final List<ReportSender> reportSenders;
+    private final SenderCircuitBreakers circuitBreakers = SenderCircuitBreakers.getInstance();
+
+    /**
+     * Pool on which each report is sent to all the senders at once, or null
+     * if senders are called one after another.
+     */
+    private ExecutorService senderExecutor;
+
+    /**
+     * Earliest time at which a report skipped or failed by this pass may be
+     * sent, 0 if none.
+     */
+    private long retryTime = 0;
 
     /**
      * Creates a new {@link SendWorker} to try sending pending reports.
@@ -67,14 +97,37 @@ final class SendWorker extends Thread {
     /*
      * (non-Javadoc)
      * 
-     * @see java.lang.Thread#run()
+     * @see java.lang.Runnable#run()
      */
     @Override
     public void run() {
-        if (approvePendingReports) {
-            approvePendingReports();
+        if (ACRA.getConfig().parallelReportSenders() && reportSenders.size() > 1) {
+            senderExecutor = Executors.newFixedThreadPool(Math.min(reportSenders.size(),
+                    ACRAConstants.MAX_PARALLEL_REPORT_SENDERS));
+        }
+        // The index is written once at the end of the pass instead of after
+        // each report sent.
+        final CrashReportIndex index = CrashReportIndex.getInstance(context);
+        try {
+            index.beginUpdates();
+            try {
+                if (approvePendingReports) {
+                    approvePendingReports();
+                }
+                checkAndSendReports(context, sendOnlySilentReports);
+            } finally {
+                index.endUpdates();
+            }
+            // Journaled reports are all silent, they must not use the rate
+            // and the senders before the indexed reports, which may be fatal.
+            drainJournal();
+        } finally {
+            if (senderExecutor != null) {
+                senderExecutor.shutdown();
+                senderExecutor = null;
+            }
+            HttpRequest.closeIdleConnections();
         }
-        checkAndSendReports(context, sendOnlySilentReports);
     }
 
     /**
@@ -84,25 +137,116 @@ final class SendWorker extends Thread {
     private void approvePendingReports() {
         Log.d(LOG_TAG, "Mark all pending reports as approved.");
 
-        final CrashReportFinder reportFinder = new CrashReportFinder(context);
-        final String[] reportFileNames = reportFinder.getCrashReportFiles();
+        final CrashReportPersister persister = new CrashReportPersister(context);
+        for (CrashReportIndex.Entry entry : CrashReportIndex.getInstance(context).getEntries()) {
+            if (!entry.isApproved()) {
+                persister.approve(entry.getFileName());
+            }
+        }
+    }
 
-        for (String reportFileName : reportFileNames) {
-            if (!fileNameParser.isApproved(reportFileName)) {
-                final File reportFile = new File(context.getFilesDir(), reportFileName);
+    /**
+     * Sends the silent reports appended to the {@link CrashReportJournal},
+     * oldest first, once the indexed reports have been handled. They are
+     * always sent, whatever the interaction mode, but like other reports
+     * they wait for the conditions required by
+     * {@link ReportsCrashes#deferredSending()}.
+     */
+    private void drainJournal() {
+        final CrashReportJournal journal = CrashReportJournal.getInstance(context);
+        final SendRateLimiter rateLimiter = SendRateLimiter.getInstance();
+        final ReportsCrashes config = ACRA.getConfig();
+        final boolean deferFullReports = config.deferredSending() && !SendConditions.allowFullReports(context);
 
-                // TODO look into how this could cause a file to go from
-                // -approved.stacktrace to -approved-approved.stacktrace
-                final String newName = reportFileName.replace(ACRAConstants.REPORTFILE_EXTENSION,
-                        ACRAConstants.APPROVED_SUFFIX + ACRAConstants.REPORTFILE_EXTENSION);
+        CrashReportJournal.Record record;
+        while ((record = journal.peek()) != null) {
+            if (deferFullReports) {
+                // Journaled reports have no index entry to remember that
+                // their summary has been sent, they are kept whole until a
+                // Wi-Fi network or a charger is available.
+                scheduleRetry(System.currentTimeMillis() + config.deferredSendingCheckInterval());
+                break;
+            }
 
-                // TODO Look into whether rename is atomic. Is there a better
-                // option?
-                final File newFile = new File(context.getFilesDir(), newName);
-                if (!reportFile.renameTo(newFile)) {
-                    Log.e(LOG_TAG, "Could not rename approved report from " + reportFile + " to " + newFile);
-                }
+            final long nextAttemptTime = journal.getNextAttemptTime(record);
+            if (nextAttemptTime > System.currentTimeMillis()) {
+                // Sending the oldest record failed recently, the next ones
+                // wait for it.
+                scheduleRetry(nextAttemptTime);
+                break;
+            }
+
+            if (circuitBreakers.allOpen(reportSenders)) {
+                // All the senders keep failing, keep the reports until one
+                // of them may work again.
+                scheduleRetry(circuitBreakers.getResetTime(reportSenders));
+                break;
+            }
+
+            if (!rateLimiter.tryAcquire(record.getSize())) {
+                // Sending more reports now would exceed the configured rate.
+                scheduleRetry(rateLimiter.getAvailableTime(record.getSize()));
+                break;
+            }
+
+            try {
+                sendCrashReport(null, record.getCrashData());
+            } catch (RuntimeException e) {
+                Log.e(ACRA.LOG_TAG, "Failed to send journaled crash report", e);
+                journal.consume(record);
+                break; // Something really unexpected happened. Don't try to
+                       // send any more reports now.
+            } catch (IOException e) {
+                // Journaled reports are already loaded in memory.
+                Log.e(ACRA.LOG_TAG, "Failed to send journaled crash report", e);
+                journal.consume(record);
+                continue;
+            } catch (ReportSenderException e) {
+                Log.e(ACRA.LOG_TAG, "Failed to send journaled crash report", e);
+                recordFailedAttempt(journal, record);
+                break; // Something stopped the report being sent. Don't try to
+                       // send any more reports now.
             }
+            journal.consume(record);
+        }
+    }
+
+    /**
+     * Records a failed attempt to send a journaled report, as
+     * {@link #recordFailedAttempt(CrashReportIndex.Entry)} does for indexed
+     * reports. A journaled report which reached
+     * {@link ReportsCrashes#maxReportSendAttempts()} is moved out of the
+     * journal to an abandoned report file, so that it does not block the
+     * following records.
+     * 
+     * @param journal
+     *            The journal holding the report.
+     * @param record
+     *            The record of the report which could not be sent.
+     */
+    private void recordFailedAttempt(CrashReportJournal journal, CrashReportJournal.Record record) {
+        final ReportsCrashes config = ACRA.getConfig();
+        final int attempts = journal.getAttempts(record) + 1;
+        if (config.maxReportSendAttempts() > 0 && attempts >= config.maxReportSendAttempts()) {
+            final String fileName = System.currentTimeMillis() + ACRAConstants.SILENT_SUFFIX
+                    + ACRAConstants.REPORTFILE_EXTENSION;
+            Log.w(LOG_TAG, "Could not send journaled report after " + attempts + " attempts, giving up. It is kept in "
+                    + fileName + " but it will not be sent again.");
+            try {
+                new CrashReportPersister(context).store(record.getCrashData(), fileName);
+                CrashReportIndex.getInstance(context).abandon(fileName);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Could not store abandoned journaled report, dropping it.", e);
+            }
+            journal.consume(record);
+            return;
+        }
+
+        final long delay = getRetryDelay(attempts, config.sendRetryBaseDelay(), config.sendRetryMaxDelay());
+        final long nextAttemptTime = delay > 0 ? System.currentTimeMillis() + delay : 0;
+        journal.recordFailedAttempt(record, nextAttemptTime);
+        if (delay > 0) {
+            scheduleRetry(nextAttemptTime);
         }
     }
 
@@ -118,64 +262,376 @@ final class SendWorker extends Thread {
      */
     private void checkAndSendReports(Context context, boolean sendOnlySilentReports) {
         Log.d(LOG_TAG, "#checkAndSendReports - start");
-        final CrashReportFinder reportFinder = new CrashReportFinder(context);
-        final String[] reportFiles = reportFinder.getCrashReportFiles();
-        Arrays.sort(reportFiles);
+        final CrashReportPersister persister = new CrashReportPersister(context);
+
+        final SendRateLimiter rateLimiter = SendRateLimiter.getInstance();
+        final long now = System.currentTimeMillis();
+
+        final ReportsCrashes config = ACRA.getConfig();
+        final List<CrashReportIndex.Entry> batch = isBatchMode() ? new ArrayList<CrashReportIndex.Entry>() : null;
+        long batchSize = 0;
+        final boolean deferFullReports = config.deferredSending() && !SendConditions.allowFullReports(context);
+
+        // Index entries are sorted by file name, i.e. by creation date, and
+        // reordered by the configured policy.
+        final List<CrashReportIndex.Entry> entries = config.reportSendOrder().sendOrder(
+                CrashReportIndex.getInstance(context).getEntries(), getCurrentVersionCode());
+        for (CrashReportIndex.Entry entry : entries) {
+            final String curFileName = entry.getFileName();
+            if (entry.isAbandoned() || (sendOnlySilentReports && !entry.isSilent())) {
+                continue;
+            }
+
+            if (entry.getNextAttemptTime() > now) {
+                // Sending this report failed recently.
+                scheduleRetry(entry.getNextAttemptTime());
+                continue;
+            }
+
+            if (deferFullReports) {
+                // Full reports wait for a Wi-Fi network or a charger, only
+                // their summary is sent now.
+                scheduleRetry(now + config.deferredSendingCheckInterval());
+                if (entry.isSummarySent()) {
+                    continue;
+                }
+            }
+
+            if (batch != null && !batch.isEmpty()
+                    && (batch.size() >= config.maxReportsPerBatch()
+                            || batchSize + entry.getSize() > config.maxBatchSize())) {
+                final boolean sent = sendBatch(persister, batch);
+                batch.clear();
+                batchSize = 0;
+                if (!sent) {
+                    break;
+                }
+            }
 
-        int reportsSentCount = 0;
+            if (circuitBreakers.allOpen(reportSenders)) {
+                // All the senders keep failing, keep the reports until one
+                // of them may work again.
+                scheduleRetry(circuitBreakers.getResetTime(reportSenders));
+                break;
+            }
 
-        for (String curFileName : reportFiles) {
-            if (sendOnlySilentReports && !fileNameParser.isSilent(curFileName)) {
+            final long sendSize = deferFullReports ? 0 : entry.getSize();
+            if (!rateLimiter.tryAcquire(sendSize)) {
+                // Sending more reports now would exceed the configured rate,
+                // avoid overloading the network.
+                scheduleRetry(rateLimiter.getAvailableTime(sendSize));
+                break;
+            }
+
+            if (deferFullReports) {
+                if (!sendSummary(persister, entry)) {
+                    break;
+                }
                 continue;
             }
 
-            if (reportsSentCount >= ACRAConstants.MAX_SEND_REPORTS) {
-                break; // send only a few reports to avoid overloading the
-                       // network
+            if (batch != null) {
+                batch.add(entry);
+                batchSize += entry.getSize();
+                continue;
             }
 
             Log.i(LOG_TAG, "Sending file " + curFileName);
             try {
-                final CrashReportPersister persister = new CrashReportPersister(context);
-                final CrashReportData previousCrashReport = persister.load(curFileName);
-                sendCrashReport(previousCrashReport);
-                deleteFile(context, curFileName);
+                sendCrashReport(curFileName, null);
+                persister.delete(curFileName);
             } catch (RuntimeException e) {
                 Log.e(ACRA.LOG_TAG, "Failed to send crash reports for " + curFileName, e);
-                deleteFile(context, curFileName);
+                persister.delete(curFileName);
                 break; // Something really unexpected happened. Don't try to
                        // send any more reports now.
             } catch (IOException e) {
                 Log.e(ACRA.LOG_TAG, "Failed to load crash report for " + curFileName, e);
-                deleteFile(context, curFileName);
-                break; // Something unexpected happened when reading the crash
-                       // report. Don't try to send any more reports now.
+                persister.delete(curFileName);
+                continue; // This report file is corrupted. Other reports can
+                          // still be sent.
             } catch (ReportSenderException e) {
                 Log.e(ACRA.LOG_TAG, "Failed to send crash report for " + curFileName, e);
+                recordFailedAttempt(entry);
                 break; // Something stopped the report being sent. Don't try to
                        // send any more reports now.
             }
-            reportsSentCount++;
+        }
+        if (batch != null && !batch.isEmpty()) {
+            sendBatch(persister, batch);
         }
         Log.d(LOG_TAG, "#checkAndSendReports - finish");
     }
 
+    /**
+     * Sends the {@link ReportSummary} of a report whose sending is deferred.
+     * The report itself is kept.
+     * 
+     * @param persister
+     *            CrashReportPersister used to load the report.
+     * @param entry
+     *            Index entry of the report.
+     * @return false if no more reports should be sent now.
+     */
+    private boolean sendSummary(CrashReportPersister persister, CrashReportIndex.Entry entry) {
+        final String fileName = entry.getFileName();
+        Log.i(LOG_TAG, "Sending summary of file " + fileName);
+        try {
+            sendCrashReport(null, ReportSummary.of(persister.load(fileName)));
+            CrashReportIndex.getInstance(context).setSummarySent(fileName);
+        } catch (RuntimeException e) {
+            Log.e(ACRA.LOG_TAG, "Failed to send crash report summary for " + fileName, e);
+            persister.delete(fileName);
+            return false; // Something really unexpected happened. Don't try
+                          // to send any more reports now.
+        } catch (IOException e) {
+            Log.e(ACRA.LOG_TAG, "Failed to load crash report for " + fileName, e);
+            persister.delete(fileName);
+        } catch (ReportSenderException e) {
+            // The summary will be sent by a later pass, there is no need to
+            // delay the full report.
+            Log.e(ACRA.LOG_TAG, "Failed to send crash report summary for " + fileName, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Version code of the running application, 0 if unknown.
+     */
+    private int getCurrentVersionCode() {
+        final PackageInfo packageInfo = new PackageManagerWrapper(context).getPackageInfo();
+        return packageInfo != null ? packageInfo.versionCode : 0;
+    }
+
+    /**
+     * @return true if pending reports are sent in batches, i.e. when all the
+     *         report senders are {@link BatchReportSender}s.
+     */
+    private boolean isBatchMode() {
+        if (reportSenders.isEmpty() || ACRA.getConfig().maxReportsPerBatch() <= 1) {
+            return false;
+        }
+        for (ReportSender sender : reportSenders) {
+            if (!(sender instanceof BatchReportSender)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends several pending reports at once. Reports acknowledged by at least
+     * one sender are deleted, the other ones are sent again later.
+     * 
+     * @param persister
+     *            CrashReportPersister used to load and delete the reports.
+     * @param entries
+     *            Index entries of the reports to send.
+     * @return false if no more reports should be sent now.
+     */
+    private boolean sendBatch(CrashReportPersister persister, List<CrashReportIndex.Entry> entries) {
+        final List<CrashReportIndex.Entry> loadedEntries = new ArrayList<CrashReportIndex.Entry>(entries.size());
+        final List<CrashReportData> reports = new ArrayList<CrashReportData>(entries.size());
+        for (CrashReportIndex.Entry entry : entries) {
+            try {
+                reports.add(persister.load(entry.getFileName()));
+                loadedEntries.add(entry);
+            } catch (IOException e) {
+                Log.e(ACRA.LOG_TAG, "Failed to load crash report for " + entry.getFileName(), e);
+                persister.delete(entry.getFileName());
+            }
+        }
+        if (reports.isEmpty()) {
+            return true;
+        }
+
+        Log.i(LOG_TAG, "Sending " + reports.size() + " files in one batch");
+        final boolean[] accepted;
+        try {
+            accepted = sendCrashReports(reports);
+        } catch (RuntimeException e) {
+            Log.e(ACRA.LOG_TAG, "Failed to send batch of crash reports", e);
+            for (CrashReportIndex.Entry entry : loadedEntries) {
+                persister.delete(entry.getFileName());
+            }
+            return false; // Something really unexpected happened. Don't try
+                          // to send any more reports now.
+        } catch (ReportSenderException e) {
+            Log.e(ACRA.LOG_TAG, "Failed to send batch of crash reports", e);
+            for (CrashReportIndex.Entry entry : loadedEntries) {
+                recordFailedAttempt(entry);
+            }
+            return false; // Something stopped the reports being sent. Don't
+                          // try to send any more reports now.
+        }
+
+        for (int i = 0; i < loadedEntries.size(); i++) {
+            final CrashReportIndex.Entry entry = loadedEntries.get(i);
+            if (accepted[i]) {
+                persister.delete(entry.getFileName());
+            } else {
+                Log.w(LOG_TAG, "Crash report " + entry.getFileName()
+                        + " was not accepted, it will be sent again later.");
+                recordFailedAttempt(entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends several reports with all configured {@link BatchReportSender}s,
+     * one after another. A report is considered as sent if at least one sender
+     * accepted it.
+     * 
+     * @param reports
+     *            The reports to send.
+     * @return For each report, true if it has been accepted.
+     * @throws ReportSenderException
+     *             if the first sender could not send the batch.
+     */
+    private boolean[] sendCrashReports(List<CrashReportData> reports) throws ReportSenderException {
+        final boolean[] accepted = new boolean[reports.size()];
+        if (ACRA.isDebuggable() && !ACRA.getConfig().sendReportsInDevMode()) {
+            Arrays.fill(accepted, true);
+            return accepted;
+        }
+
+        boolean sentAtLeastOnce = false;
+        for (ReportSender sender : circuitBreakers.getAvailableSenders(reportSenders)) {
+            try {
+                final boolean[] senderAccepted;
+                try {
+                    senderAccepted = ((BatchReportSender) sender).send(reports);
+                } catch (ReportSenderException e) {
+                    circuitBreakers.recordFailure(sender);
+                    throw e;
+                }
+                circuitBreakers.recordSuccess(sender);
+                for (int i = 0; i < accepted.length && i < senderAccepted.length; i++) {
+                    accepted[i] |= senderAccepted[i];
+                }
+                sentAtLeastOnce = true;
+            } catch (ReportSenderException e) {
+                if (!sentAtLeastOnce) {
+                    throw e;
+                }
+                Log.w(LOG_TAG, "ReportSender of class " + sender.getClass().getName()
+                        + " failed but other senders completed their task.");
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Records a failed attempt to send a report, and when it may be sent
+     * again, after an exponential backoff delay. Reports which failed to be
+     * sent {@link org.acra.annotation.ReportsCrashes#maxReportSendAttempts()}
+     * times are abandoned: they are kept but not sent anymore.
+     * 
+     * @param entry
+     *            Index entry of the report which could not be sent.
+     */
+    private void recordFailedAttempt(CrashReportIndex.Entry entry) {
+        final ReportsCrashes config = ACRA.getConfig();
+        final int attempts = entry.getAttempts() + 1;
+        if (config.maxReportSendAttempts() > 0 && attempts >= config.maxReportSendAttempts()) {
+            Log.w(LOG_TAG, "Could not send " + entry.getFileName() + " after " + attempts
+                    + " attempts, giving up. The report is kept but it will not be sent again.");
+            CrashReportIndex.getInstance(context).recordFailedAttempt(entry.getFileName(), 0);
+            CrashReportIndex.getInstance(context).abandon(entry.getFileName());
+            return;
+        }
+
+        final long delay = getRetryDelay(attempts, config.sendRetryBaseDelay(), config.sendRetryMaxDelay());
+        if (delay > 0) {
+            final long nextAttemptTime = System.currentTimeMillis() + delay;
+            CrashReportIndex.getInstance(context).recordFailedAttempt(entry.getFileName(), nextAttemptTime);
+            scheduleRetry(nextAttemptTime);
+        } else {
+            CrashReportIndex.getInstance(context).recordFailedAttempt(entry.getFileName(), 0);
+        }
+    }
+
+    /**
+     * Computes the delay before a new attempt to send a report: the base delay
+     * doubled for each previous failed attempt, capped to the maximum delay,
+     * of which a random half is used so that many devices failing at the
+     * same time do not retry at the same time.
+     * 
+     * @param attempts
+     *            Number of failed attempts, at least 1.
+     * @param baseDelay
+     *            Delay after the first failed attempt, in milliseconds.
+     * @param maxDelay
+     *            Maximum delay in milliseconds.
+     * @return The delay in milliseconds, 0 if there is no backoff.
+     */
+    private long getRetryDelay(int attempts, long baseDelay, long maxDelay) {
+        if (baseDelay <= 0) {
+            return 0;
+        }
+        long delay = baseDelay;
+        for (int i = 1; i < attempts && delay < maxDelay; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, Math.max(baseDelay, maxDelay));
+        return delay / 2 + (long) (RANDOM.nextDouble() * (delay / 2));
+    }
+
+    private void scheduleRetry(long time) {
+        if (retryTime == 0 || time < retryTime) {
+            retryTime = time;
+        }
+    }
+
+    /**
+     * @return Time in milliseconds at which the earliest report which could
+     *         not be sent by this pass may be sent again, 0 if there is no such
+     *         report.
+     */
+    long getRetryTime() {
+        return retryTime;
+    }
+
     /**
      * Sends the report with all configured ReportSenders. If at least one
      * sender completed its job, the report is considered as sent and will not
      * be sent again for failing senders.
+     * <p>
+     * Reports larger than {@link ACRAConstants#MAX_BUFFERED_REPORT_SIZE} are
+     * read field by field from their file by {@link StreamingReportSender}s,
+     * and loaded in memory, once, only for other senders.
+     * </p>
      * 
-     * @param errorContent
-     *            Crash data.
+     * @param reportFileName
+     *            Name of the report file to send, or null if the report is
+     *            already loaded.
+     * @param crashData
+     *            The report to send if it is already loaded, or null to read
+     *            it from its file.
+     * @throws IOException
+     *             if the report file could not be read.
      * @throws ReportSenderException
      *             if unable to send the crash report.
      */
-    private void sendCrashReport(CrashReportData errorContent) throws ReportSenderException {
+    private void sendCrashReport(String reportFileName, CrashReportData crashData) throws IOException,
+            ReportSenderException {
         if (!ACRA.isDebuggable() || ACRA.getConfig().sendReportsInDevMode()) {
+            if (senderExecutor != null) {
+                sendCrashReportInParallel(reportFileName, crashData);
+                return;
+            }
+
+            final CrashReportPersister persister = new CrashReportPersister(context);
+            CrashReportData errorContent = crashData != null ? crashData : loadIfSmall(persister, reportFileName);
             boolean sentAtLeastOnce = false;
-            for (ReportSender sender : reportSenders) {
+            for (ReportSender sender : circuitBreakers.getAvailableSenders(reportSenders)) {
                 try {
-                    sender.send(errorContent);
+                    if (errorContent == null && !(sender instanceof StreamingReportSender)) {
+                        errorContent = persister.load(reportFileName);
+                    }
+                    send(sender, persister, reportFileName, errorContent);
                     // If at least one sender worked, don't re-send the report
                     // later.
                     sentAtLeastOnce = true;
@@ -194,10 +650,133 @@ final class SendWorker extends Thread {
         }
     }
 
-    private void deleteFile(Context context, String fileName) {
-        final boolean deleted = context.deleteFile(fileName);
-        if (!deleted) {
-            Log.w(ACRA.LOG_TAG, "Could not delete error report : " + fileName);
+    /**
+     * Sends the report with all configured ReportSenders at once, on the
+     * {@link #senderExecutor}. As when senders are called one after another,
+     * the report is considered as sent if at least one sender completed its
+     * job.
+     * 
+     * @param reportFileName
+     *            Name of the report file to send, or null if the report is
+     *            already loaded.
+     * @param crashData
+     *            The report to send if it is already loaded, or null to read
+     *            it from its file.
+     * @throws IOException
+     *             if the report file could not be read.
+     * @throws ReportSenderException
+     *             if no sender could send the crash report.
+     */
+    private void sendCrashReportInParallel(final String reportFileName, CrashReportData crashData)
+            throws IOException, ReportSenderException {
+        final CrashReportPersister persister = new CrashReportPersister(context);
+        final List<ReportSender> senders = circuitBreakers.getAvailableSenders(reportSenders);
+        CrashReportData loadedContent = crashData != null ? crashData : loadIfSmall(persister, reportFileName);
+        if (loadedContent == null) {
+            for (ReportSender sender : senders) {
+                if (!(sender instanceof StreamingReportSender)) {
+                    // Loaded once, before senders start reading it.
+                    loadedContent = persister.load(reportFileName);
+                    break;
+                }
+            }
+        }
+        final CrashReportData errorContent = loadedContent;
+
+        final List<Future<?>> outcomes = new ArrayList<Future<?>>(senders.size());
+        for (final ReportSender sender : senders) {
+            outcomes.add(senderExecutor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    send(sender, persister, reportFileName, errorContent);
+                    return null;
+                }
+            }));
+        }
+
+        boolean sentAtLeastOnce = false;
+        Throwable firstFailure = null;
+        RuntimeException unexpectedFailure = null;
+        for (int i = 0; i < outcomes.size(); i++) {
+            final String senderName = senders.get(i).getClass().getName();
+            try {
+                outcomes.get(i).get();
+                sentAtLeastOnce = true;
+            } catch (ExecutionException e) {
+                final Throwable failure = e.getCause();
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure instanceof RuntimeException && unexpectedFailure == null) {
+                    unexpectedFailure = (RuntimeException) failure;
+                }
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+                Log.w(LOG_TAG, "ReportSender of class " + senderName + " failed", failure);
+            } catch (InterruptedException e) {
+                throw new ReportSenderException("Interrupted while waiting for ReportSender of class "
+                        + senderName, e);
+            }
+        }
+
+        if (unexpectedFailure != null) {
+            throw unexpectedFailure;
+        }
+        if (!sentAtLeastOnce && firstFailure != null) {
+            if (firstFailure instanceof IOException) {
+                throw (IOException) firstFailure;
+            }
+            if (firstFailure instanceof ReportSenderException) {
+                throw (ReportSenderException) firstFailure;
+            }
+            throw new ReportSenderException("ReportSender failed", firstFailure);
+        }
+        if (firstFailure != null) {
+            Log.w(LOG_TAG,
+                    "Some ReportSenders failed but other senders completed their task. ACRA will not send this report again.");
+        }
+    }
+
+    /**
+     * @return The report loaded in memory if its file is no larger than
+     *         {@link ACRAConstants#MAX_BUFFERED_REPORT_SIZE}, null otherwise.
+     * @throws IOException
+     *             if the report file could not be read.
+     */
+    private CrashReportData loadIfSmall(CrashReportPersister persister, String reportFileName) throws IOException {
+        final File reportFile = new File(context.getFilesDir(), reportFileName);
+        return reportFile.length() <= ACRAConstants.MAX_BUFFERED_REPORT_SIZE ? persister.load(reportFileName) : null;
+    }
+
+    /**
+     * Sends a report with one ReportSender, and records the outcome in its
+     * circuit breaker.
+     * <p>
+     * {@link StreamingReportSender}s read the report field by field from its
+     * file if it is not loaded. A report they could not read is not
+     * a failure of the sender: its IOException is thrown so that the report
+     * is deleted as corrupted.
+     * </p>
+     */
+    private void send(ReportSender sender, CrashReportPersister persister, String reportFileName,
+            CrashReportData errorContent) throws IOException, ReportSenderException {
+        try {
+            if (errorContent == null && sender instanceof StreamingReportSender) {
+                final CrashReportReader reader = persister.openReader(reportFileName);
+                try {
+                    ((StreamingReportSender) sender).send(reader);
+                } catch (ReportReadException e) {
+                    throw e.getCause();
+                } finally {
+                    reader.close();
+                }
+            } else {
+                sender.send(errorContent);
+            }
+        } catch (ReportSenderException e) {
+            circuitBreakers.recordFailure(sender);
+            throw e;
         }
+        circuitBreakers.recordSuccess(sender);
     }
 }
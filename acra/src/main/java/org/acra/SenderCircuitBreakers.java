@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acra.annotation.ReportsCrashes;
+import org.acra.sender.DestinationReportSender;
+import org.acra.sender.ReportSender;
+import org.acra.util.CircuitBreaker;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Keeps one {@link CircuitBreaker} per {@link ReportSender} class and
+ * {@link DestinationReportSender#getDestination() destination}, so that
+ * passes skip senders which keep failing instead of waiting for their
+ * timeouts. The state of the breakers is kept in the ACRA SharedPreferences so
+ * that restarting the application does not close them.
+ */
+final class SenderCircuitBreakers {
+
+    private static final String PREF_PREFIX = "acra.circuitBreaker.";
+    private static final String PREF_FAILURES = ".failures";
+    private static final String PREF_OPENED_TIME = ".openedTime";
+
+    private static SenderCircuitBreakers instance;
+
+    private final SharedPreferences prefs;
+    private final int failureThreshold;
+    private final long resetTimeout;
+    private final Map<String, CircuitBreaker> breakers = new HashMap<String, CircuitBreaker>();
+
+    private SenderCircuitBreakers(SharedPreferences prefs, ReportsCrashes config) {
+        this.prefs = prefs;
+        this.failureThreshold = config.circuitBreakerFailureThreshold();
+        this.resetTimeout = config.circuitBreakerResetTimeout();
+    }
+
+    /**
+     * @return The circuit breakers shared by all the passes sending reports.
+     */
+    static synchronized SenderCircuitBreakers getInstance() {
+        if (instance == null) {
+            instance = new SenderCircuitBreakers(ACRA.getACRASharedPreferences(), ACRA.getConfig());
+        }
+        return instance;
+    }
+
+    /**
+     * @param senders
+     *            The configured report senders.
+     * @return The senders which can be called now.
+     */
+    synchronized List<ReportSender> getAvailableSenders(List<ReportSender> senders) {
+        final long now = System.currentTimeMillis();
+        final List<ReportSender> available = new ArrayList<ReportSender>(senders.size());
+        for (ReportSender sender : senders) {
+            if (getBreaker(sender).allowRequest(now)) {
+                available.add(sender);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * @param senders
+     *            The configured report senders.
+     * @return true if there are senders and none of them can be called now.
+     */
+    synchronized boolean allOpen(List<ReportSender> senders) {
+        return !senders.isEmpty() && getAvailableSenders(senders).isEmpty();
+    }
+
+    /**
+     * @param senders
+     *            The configured report senders.
+     * @return The time in milliseconds at which one of the senders can be
+     *         called again.
+     */
+    synchronized long getResetTime(List<ReportSender> senders) {
+        long time = Long.MAX_VALUE;
+        for (ReportSender sender : senders) {
+            time = Math.min(time, getBreaker(sender).getResetTime());
+        }
+        return time;
+    }
+
+    /**
+     * Records that a sender sent a report, which closes its breaker.
+     */
+    synchronized void recordSuccess(ReportSender sender) {
+        final CircuitBreaker breaker = getBreaker(sender);
+        if (breaker.getFailures() > 0) {
+            breaker.recordSuccess();
+            save(sender, breaker);
+        }
+    }
+
+    /**
+     * Records that a sender failed to send a report.
+     */
+    synchronized void recordFailure(ReportSender sender) {
+        final CircuitBreaker breaker = getBreaker(sender);
+        breaker.recordFailure(System.currentTimeMillis());
+        save(sender, breaker);
+        if (!breaker.allowRequest(System.currentTimeMillis())) {
+            Log.w(LOG_TAG, "ReportSender " + getKey(sender) + " failed "
+                    + breaker.getFailures() + " times in a row, it won't be called before " + resetTimeout + "ms.");
+        }
+    }
+
+    /**
+     * @return The name of the breaker of a sender: its class name, followed by
+     *         its destination if it has one.
+     */
+    static String getKey(ReportSender sender) {
+        final String name = sender.getClass().getName();
+        if (sender instanceof DestinationReportSender) {
+            final String destination = ((DestinationReportSender) sender).getDestination();
+            if (destination != null) {
+                return name + "@" + destination;
+            }
+        }
+        return name;
+    }
+
+    private CircuitBreaker getBreaker(ReportSender sender) {
+        final String name = getKey(sender);
+        CircuitBreaker breaker = breakers.get(name);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(failureThreshold, resetTimeout, prefs.getInt(PREF_PREFIX + name
+                    + PREF_FAILURES, 0), prefs.getLong(PREF_PREFIX + name + PREF_OPENED_TIME, 0));
+            breakers.put(name, breaker);
+        }
+        return breaker;
+    }
+
+    private void save(ReportSender sender, CircuitBreaker breaker) {
+        final String name = getKey(sender);
+        final SharedPreferences.Editor editor = prefs.edit();
+        editor.putInt(PREF_PREFIX + name + PREF_FAILURES, breaker.getFailures());
+        editor.putLong(PREF_PREFIX + name + PREF_OPENED_TIME, breaker.getOpenedTime());
+        editor.commit();
+    }
+}
@@ -20,7 +20,12 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import org.acra.ACRA;
 import org.acra.ACRAConstants;
+import org.acra.HttpReportFormat;
+import org.acra.HttpTransportType;
+import org.acra.ReportEvictionPolicy;
+import org.acra.ReportSendOrder;
 import org.acra.ReportField;
+import org.acra.ReportFileFormat;
 import org.acra.ReportingInteractionMode;
 
 import java.lang.annotation.*;
@@ -416,6 +421,10 @@ public @interface ReportsCrashes {
     int socketTimeout() default ACRAConstants.DEFAULT_SOCKET_TIMEOUT;
 
     /**
+     * Reports whose file is larger than 256 KB are posted by
+     * {@link org.acra.sender.HttpPostSender} as they are read from their file,
+     * and are not retried: the report is sent again on a later attempt.
+     * 
      * @return Maximum number of times a network request will be retried when
      *         receiving the response times out (default 3).
      * @see #socketTimeout()
@@ -503,4 +512,338 @@ public @interface ReportsCrashes {
      *         including a %s token which is replaced by the formKey.
      */
     String googleFormUrlFormat() default ACRAConstants.DEFAULT_GOOGLE_FORM_URL_FORMAT;
+
+    /**
+     * Format used to store pending reports in the application private
+     * directory. Default is {@link ReportFileFormat#TEXT}.
+     * {@link ReportFileFormat#BINARY} avoids escaping every character of large
+     * fields like {@link ReportField#LOGCAT}. Reports stored with any format
+     * can always be read back, whatever the current setting.
+     * 
+     * @return The format used to write report files.
+     */
+    ReportFileFormat reportFileFormat() default ReportFileFormat.TEXT;
+
+    /**
+     * Set this to true to gzip compress report files stored in the application
+     * private directory. Reports are mostly made of logcat, dropbox and
+     * dumpsys text which compresses very well, so this reduces flash writes and
+     * disk usage when several unsent reports are kept. Compressed reports are
+     * detected from their header and always read transparently, whatever the
+     * value of this setting. Default is false.
+     * 
+     * @return true if report files have to be compressed.
+     */
+    boolean compressReportFiles() default ACRAConstants.DEFAULT_COMPRESS_REPORT_FILES;
+
+    /**
+     * Report files are written to a temporary file which is renamed once
+     * complete, so that a process dying while writing a report never leaves a
+     * truncated report behind. Set this to true to also force the report
+     * content to the storage device (fsync) before the rename. This makes the
+     * report survive a power loss or kernel crash, at the cost of a slower
+     * write. Segments of the silent reports journal (see
+     * {@link #journalSilentReports()}) are synced once each, when the next
+     * segment is started. Default is true.
+     * 
+     * @return true if report files have to be synced to the storage device
+     *         before being made visible.
+     */
+    boolean syncReportFiles() default ACRAConstants.DEFAULT_SYNC_REPORT_FILES;
+
+    /**
+     * Set this to true to append reports created with
+     * {@link org.acra.ErrorReporter#handleSilentException(Throwable)} to a
+     * journal made of a few segment files instead of writing one report file
+     * per exception. This is meant for applications reporting silent
+     * exceptions at a high rate: the journal is written sequentially and its
+     * size is capped by {@link #journalSegmentSize()} and
+     * {@link #maxJournalSegments()}, oldest silent reports being dropped
+     * first. Default is false.
+     * 
+     * @return true if silent reports have to be appended to the journal.
+     */
+    boolean journalSilentReports() default ACRAConstants.DEFAULT_JOURNAL_SILENT_REPORTS;
+
+    /**
+     * Size in bytes above which a new journal segment is started. Only used
+     * if {@link #journalSilentReports()} is true. Default is 256KB.
+     * 
+     * @return Maximum size of a journal segment in bytes.
+     */
+    int journalSegmentSize() default ACRAConstants.DEFAULT_JOURNAL_SEGMENT_SIZE;
+
+    /**
+     * Maximum number of journal segments kept. When a new segment is started
+     * and there are more segments than this, the oldest one is deleted with the
+     * silent reports it still holds. Only used if
+     * {@link #journalSilentReports()} is true. Default is 4.
+     * 
+     * @return Maximum number of journal segments.
+     */
+    int maxJournalSegments() default ACRAConstants.DEFAULT_MAX_JOURNAL_SEGMENTS;
+
+    /**
+     * Size in bytes of a memory mapped file allocated when ACRA is initialized,
+     * in which the stack trace of an {@link OutOfMemoryError} is written
+     * without building any String, with the fields describing the process
+     * which can be collected in advance. The crash is converted to a report on
+     * next application start if the complete report could not be stored, with
+     * {@link ReportField#RECONSTRUCTED} set. 16384 bytes are enough for most
+     * stack traces. Default is 0 (disabled).
+     * 
+     * @return Size of the OutOfMemoryError crash area in bytes, 0 to disable
+     *         it.
+     */
+    int oomCrashAreaSize() default ACRAConstants.DEFAULT_OOM_CRASH_AREA_SIZE;
+
+    /**
+     * Set this to true to store a crash which occurs again while its report
+     * is still pending as an occurrence of that report, instead of a new
+     * report. Reports hold the same crash when their
+     * {@link ReportField#STACK_TRACE}, exception messages left out, and
+     * {@link ReportField#APP_VERSION_CODE} are identical. The number of
+     * occurrences and the date of the last one are stored in the
+     * {@link ReportField#OCCURRENCES} and {@link ReportField#LAST_CRASH_DATE}
+     * fields, which have to be added to {@link #customReportContent()} to be
+     * sent. Default is false.
+     * 
+     * @return true if duplicate crashes have to be coalesced in a single
+     *         report.
+     */
+    boolean coalesceDuplicateReports() default ACRAConstants.DEFAULT_COALESCE_DUPLICATE_REPORTS;
+
+    /**
+     * Maximum number of pending reports. When a new report is stored and there
+     * are more pending reports, abandoned reports (see
+     * {@link #maxReportSendAttempts()}) are deleted first, then reports in the
+     * order defined by {@link #reportEvictionPolicy()}. Default is 0 (no
+     * limit).
+     * 
+     * @return Maximum number of pending reports, 0 for no limit.
+     */
+    int maxPendingReports() default ACRAConstants.DEFAULT_MAX_PENDING_REPORTS;
+
+    /**
+     * Maximum total size in bytes of the pending report files. When a new
+     * report is stored and the pending reports take more space, abandoned
+     * reports are deleted first, then reports in the order defined by
+     * {@link #reportEvictionPolicy()}. Default is 0 (no limit).
+     * 
+     * @return Maximum size of the pending reports in bytes, 0 for no limit.
+     */
+    long maxPendingReportsSize() default ACRAConstants.DEFAULT_MAX_PENDING_REPORTS_SIZE;
+
+    /**
+     * Defines which pending reports are deleted first when
+     * {@link #maxPendingReports()} or {@link #maxPendingReportsSize()} is
+     * exceeded. The report which has just been stored is never deleted. The
+     * class must have a public no-argument constructor. Default is
+     * {@link ReportEvictionPolicy.OldestFirst}.
+     * 
+     * @return The class of the eviction policy of pending reports.
+     */
+    Class<? extends ReportEvictionPolicy> reportEvictionPolicy() default ReportEvictionPolicy.OldestFirst.class;
+
+    /**
+     * Set this to true to send each report to all the configured
+     * {@link org.acra.sender.ReportSender}s at once instead of one after
+     * another, so that sending a report takes as long as the slowest sender
+     * instead of the sum of all of them. At most 4 senders are called at once.
+     * A report is considered as sent if at least one sender succeeded. Default
+     * is false.
+     * 
+     * @return true if report senders have to be called in parallel.
+     */
+    boolean parallelReportSenders() default ACRAConstants.DEFAULT_PARALLEL_REPORT_SENDERS;
+
+    /**
+     * Delay in milliseconds before a report which could not be sent is sent
+     * again. The delay doubles with each failed attempt, up to
+     * {@link #sendRetryMaxDelay()}, and a random part of it is used so that
+     * devices do not all retry at the same time. Set to 0 to try sending
+     * failed reports again on each pass. Default is 30000 (30 seconds).
+     * 
+     * @return Delay in milliseconds after a first failed attempt to send a
+     *         report.
+     */
+    int sendRetryBaseDelay() default ACRAConstants.DEFAULT_SEND_RETRY_BASE_DELAY;
+
+    /**
+     * Maximum delay in milliseconds before a report which could not be sent is
+     * sent again. Default is 21600000 (6 hours).
+     * 
+     * @return Maximum delay in milliseconds between two attempts to send a
+     *         report.
+     */
+    int sendRetryMaxDelay() default ACRAConstants.DEFAULT_SEND_RETRY_MAX_DELAY;
+
+    /**
+     * Number of failed attempts to send a report after which the report is
+     * abandoned: it is kept, until the pending reports limits require
+     * deleting it, but it is not sent anymore. Default is 0 (sending reports
+     * is never given up).
+     * 
+     * @return Maximum number of attempts to send a report, 0 for no limit.
+     */
+    int maxReportSendAttempts() default ACRAConstants.DEFAULT_MAX_REPORT_SEND_ATTEMPTS;
+
+    /**
+     * Maximum number of reports sent per minute, whatever triggered their
+     * sending. Reports which can't be sent yet are sent later. The limit holds
+     * across application restarts. Default is 5. Set to 0 for no limit.
+     * 
+     * @return Maximum number of reports sent per minute, 0 for no limit.
+     */
+    int maxReportsSentPerMinute() default ACRAConstants.DEFAULT_MAX_REPORTS_SENT_PER_MINUTE;
+
+    /**
+     * Maximum number of report bytes, as stored on the device, sent per
+     * minute. A report larger than this is sent once nothing has been sent
+     * for a minute. Default is 0 (no limit).
+     * 
+     * @return Maximum number of bytes sent per minute, 0 for no limit.
+     */
+    int maxBytesSentPerMinute() default ACRAConstants.DEFAULT_MAX_BYTES_SENT_PER_MINUTE;
+
+    /**
+     * Number of reports which can be sent at once when none has been sent for
+     * a while, before {@link #maxReportsSentPerMinute()} applies. Default is
+     * 5.
+     * 
+     * @return Maximum number of reports sent in a burst.
+     */
+    int sendBurstSize() default ACRAConstants.DEFAULT_SEND_BURST_SIZE;
+
+    /**
+     * If true, and {@link #formUri()} is set, pending reports are posted
+     * several at once by a {@link org.acra.sender.HttpBatchPostSender} instead
+     * of one request per report, in the {@link #formUriReportFormat()}. Your
+     * server script has to acknowledge each report of the batch. Default is
+     * false.
+     * 
+     * @return True if reports should be posted in batches.
+     */
+    boolean sendReportsInBatches() default ACRAConstants.DEFAULT_SEND_REPORTS_IN_BATCHES;
+
+    /**
+     * Maximum number of reports sent in one batch when all the report senders
+     * are {@link org.acra.sender.BatchReportSender}s. Default is 20.
+     * 
+     * @return Maximum number of reports in a batch.
+     */
+    int maxReportsPerBatch() default ACRAConstants.DEFAULT_MAX_REPORTS_PER_BATCH;
+
+    /**
+     * Maximum size in bytes, as stored on the device, of the reports sent in
+     * one batch. A report larger than this is sent alone. Default is 256KB.
+     * 
+     * @return Maximum size of a batch in bytes.
+     */
+    int maxBatchSize() default ACRAConstants.DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * Number of times in a row a report sender may fail before ACRA stops
+     * calling it for {@link #circuitBreakerResetTimeout()}. Reports are kept
+     * meanwhile. Default is 3. Set to 0 to always call the senders.
+     * 
+     * @return Number of failures in a row after which a sender is skipped.
+     */
+    int circuitBreakerFailureThreshold() default ACRAConstants.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+    /**
+     * Time in milliseconds during which a report sender which failed
+     * {@link #circuitBreakerFailureThreshold()} times in a row is not called.
+     * A single report is then sent to it as a trial. Default is 10 minutes.
+     * 
+     * @return Time in milliseconds during which a failing sender is skipped.
+     */
+    int circuitBreakerResetTimeout() default ACRAConstants.DEFAULT_CIRCUIT_BREAKER_RESET_TIMEOUT;
+
+    /**
+     * Defines in which order pending reports are sent. Default is
+     * {@link ReportSendOrder#PRIORITY}: crash reports of the current
+     * application version, newest first, are sent before older or silent
+     * reports.
+     * 
+     * @return The order in which pending reports are sent.
+     */
+    ReportSendOrder reportSendOrder() default ReportSendOrder.PRIORITY;
+
+    /**
+     * If true, full reports are only sent while the device is charging or
+     * connected to a Wi-Fi network, to spare the user data plan. Meanwhile, a
+     * summary of each report is sent right away, holding its
+     * {@link ReportField#REPORT_ID}, the application version, the crash date
+     * and a {@link ReportField#STACK_TRACE_HASH}, which has to be added to
+     * {@link #customReportContent()} to be sent. Checking the network type
+     * requires the ACCESS_NETWORK_STATE permission. Default is false.
+     * 
+     * @return true if full reports should wait for a Wi-Fi network or a
+     *         charger.
+     */
+    boolean deferredSending() default ACRAConstants.DEFAULT_DEFERRED_SENDING;
+
+    /**
+     * Interval in milliseconds at which ACRA checks again whether deferred
+     * reports can be sent, while the application is running. Default is 15
+     * minutes.
+     * 
+     * @return Interval in milliseconds between two checks.
+     */
+    int deferredSendingCheckInterval() default ACRAConstants.DEFAULT_DEFERRED_SENDING_CHECK_INTERVAL;
+
+    /**
+     * Maximum time in milliseconds, from the moment reports start being sent
+     * after a crash, before the application is killed. Reports which could
+     * not be sent by then are kept and sent on next launch. Default is 0 (wait
+     * until all pending reports have been sent).
+     * 
+     * @return Maximum time in milliseconds spent sending reports after a
+     *         crash, 0 for no limit.
+     */
+    int crashSendDeadline() default ACRAConstants.DEFAULT_CRASH_SEND_DEADLINE;
+
+    /**
+     * If set, and {@link #formUri()} is set, reports are posted in chunks of
+     * this size by a {@link org.acra.sender.ResumableHttpPostSender}, so that
+     * an interrupted upload resumes where it stopped. Your server script has
+     * to implement the resumable upload protocol. Ignored, with a warning,
+     * when {@link #sendReportsInBatches()} is enabled. Default is 0 (reports
+     * are posted in a single request).
+     * 
+     * @return Size in bytes of the chunks of a report upload, 0 to post
+     *         reports in a single request.
+     */
+    int uploadChunkSize() default ACRAConstants.DEFAULT_UPLOAD_CHUNK_SIZE;
+
+    /**
+     * If true, reports posted to {@link #formUri()} are compressed with gzip
+     * and sent with a "Content-Encoding: gzip" header. If the server answers
+     * with a 415 (Unsupported Media Type) error, the report is sent again
+     * uncompressed, as well as the following reports until the application
+     * restarts. A report whose file is larger than 256 KB is posted as it is
+     * read from its file and can't be sent again right away: it is only sent
+     * uncompressed on a later attempt. Default is false.
+     * 
+     * @return true if HTTP request bodies should be compressed.
+     */
+    boolean compressHttpRequests() default ACRAConstants.DEFAULT_COMPRESS_HTTP_REQUESTS;
+
+    /**
+     * Format in which reports are posted to {@link #formUri()}. Default is
+     * {@link HttpReportFormat#FORM}.
+     * 
+     * @return The format of the reports posted to the formUri.
+     */
+    HttpReportFormat formUriReportFormat() default HttpReportFormat.FORM;
+
+    /**
+     * HTTP client library executing the requests of the senders posting
+     * reports to {@link #formUri()}. Default is
+     * {@link HttpTransportType#APACHE_HTTP_CLIENT}.
+     * 
+     * @return The HTTP client library posting reports.
+     */
+    HttpTransportType httpTransport() default HttpTransportType.APACHE_HTTP_CLIENT;
 }
@@ -379,6 +379,59 @@ public final class CrashReportDataFactory {
         return crashReportData;
     }
 
+    /**
+     * Collects the fields which describe the whole process and don't change
+     * while it runs, to be written with a crash when there is no memory left
+     * to collect them.
+     * 
+     * @return CrashReportData holding the enabled process fields.
+     */
+    public CrashReportData createProcessData() {
+        final CrashReportData processData = new CrashReportData();
+        try {
+            final PackageInfo pi = new PackageManagerWrapper(context).getPackageInfo();
+            if (pi != null) {
+                if (crashReportFields.contains(APP_VERSION_CODE)) {
+                    processData.put(APP_VERSION_CODE, Integer.toString(pi.versionCode));
+                }
+                if (crashReportFields.contains(APP_VERSION_NAME)) {
+                    processData.put(APP_VERSION_NAME, pi.versionName != null ? pi.versionName : "not set");
+                }
+            }
+            if (crashReportFields.contains(PACKAGE_NAME)) {
+                processData.put(PACKAGE_NAME, context.getPackageName());
+            }
+            processData.put(ReportField.USER_APP_START_DATE, appStartDate.format3339(false));
+            if (crashReportFields.contains(PHONE_MODEL)) {
+                processData.put(PHONE_MODEL, android.os.Build.MODEL);
+            }
+            if (crashReportFields.contains(ANDROID_VERSION)) {
+                processData.put(ANDROID_VERSION, android.os.Build.VERSION.RELEASE);
+            }
+            if (crashReportFields.contains(BRAND)) {
+                processData.put(BRAND, android.os.Build.BRAND);
+            }
+            if (crashReportFields.contains(PRODUCT)) {
+                processData.put(PRODUCT, android.os.Build.PRODUCT);
+            }
+            if (crashReportFields.contains(INSTALLATION_ID)) {
+                processData.put(INSTALLATION_ID, Installation.id(context));
+            }
+            if (crashReportFields.contains(FILE_PATH)) {
+                processData.put(FILE_PATH, ReportUtils.getApplicationFilePath(context));
+            }
+            if (crashReportFields.contains(INITIAL_CONFIGURATION)) {
+                processData.put(INITIAL_CONFIGURATION, initialConfiguration);
+            }
+            if (crashReportFields.contains(BUILD)) {
+                processData.put(BUILD, ReflectionCollector.collectConstants(android.os.Build.class));
+            }
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Error while retrieving process data", e);
+        }
+        return processData;
+    }
+
     /**
      * Generates the string which is posted in the single custom data field in
      * the GoogleDocs Form.
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.collector;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.acra.ReportField;
+
+/**
+ * A {@link CrashReportReader} over a {@link CrashReportData} already loaded in
+ * memory. Used for report formats which can't be read field by field.
+ */
+public final class CrashReportDataReader implements CrashReportReader {
+
+    private final Iterator<Map.Entry<ReportField, String>> entries;
+    private Map.Entry<ReportField, String> current;
+
+    public CrashReportDataReader(CrashReportData crashData) {
+        entries = crashData.entrySet().iterator();
+    }
+
+    @Override
+    public boolean next() {
+        current = entries.hasNext() ? entries.next() : null;
+        return current != null;
+    }
+
+    @Override
+    public ReportField getField() {
+        return current == null ? null : current.getKey();
+    }
+
+    @Override
+    public Reader getValue() {
+        return (current == null || current.getValue() == null) ? null : new StringReader(current.getValue());
+    }
+
+    @Override
+    public void close() {
+        current = null;
+    }
+}
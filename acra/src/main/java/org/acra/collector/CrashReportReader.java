@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.collector;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.acra.ReportField;
+
+/**
+ * A forward-only cursor over the fields of a stored report. Unlike
+ * {@link CrashReportData}, a whole report never has to be held in memory: each
+ * field value is read from the report file through a {@link Reader} when the
+ * cursor is positioned on it.
+ * 
+ * <pre>
+ * while (reader.next()) {
+ *     final ReportField field = reader.getField();
+ *     final Reader value = reader.getValue();
+ *     // consume value...
+ * }
+ * </pre>
+ * 
+ * @see org.acra.sender.StreamingReportSender
+ */
+public interface CrashReportReader {
+
+    /**
+     * Moves the cursor to the next field of the report. The {@link Reader}
+     * returned by {@link #getValue()} for the previous field can't be used
+     * anymore.
+     * 
+     * @return true if the cursor is positioned on a field, false if there are
+     *         no more fields in the report.
+     * @throws IOException
+     *             if the report could not be read.
+     */
+    public boolean next() throws IOException;
+
+    /**
+     * @return The {@link ReportField} the cursor is positioned on.
+     */
+    public ReportField getField();
+
+    /**
+     * @return A Reader on the value of the current field, or null if the field
+     *         has a null value. It is valid until the next call to
+     *         {@link #next()} or {@link #close()}.
+     */
+    public Reader getValue();
+
+    /**
+     * Releases the resources used to read the report.
+     * 
+     * @throws IOException
+     *             if the report could not be closed.
+     */
+    public void close() throws IOException;
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.util.List;
+
+import org.acra.annotation.ReportsCrashes;
+import org.acra.collector.CrashReportData;
+
+/**
+ * A {@link ReportSender} which can send several reports at once. When all the
+ * report senders implement this interface, ACRA calls {@link #send(List)}
+ * with up to {@link ReportsCrashes#maxReportsPerBatch()} pending reports
+ * instead of calling {@link ReportSender#send(CrashReportData)} for each of
+ * them.
+ * <p>
+ * Only the reports acknowledged by the sender are deleted. The other ones are
+ * sent again later.
+ * </p>
+ */
+public interface BatchReportSender extends ReportSender {
+    /**
+     * Send several crash reports at once.
+     * 
+     * @param reports
+     *            The reports to send, oldest first.
+     * @return For each report, in the same order, true if it has been
+     *         accepted and can be deleted.
+     * @throws ReportSenderException
+     *             If the batch could not be sent at all. None of the reports
+     *             is deleted then.
+     */
+    public boolean[] send(List<CrashReportData> reports) throws ReportSenderException;
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acra.ACRAConstants;
+import org.acra.ReportField;
+
+/**
+ * Encodes report parameters in a compact tagged binary format, which can be
+ * parsed without any unescaping.
+ * <p>
+ * The body starts with a version byte, currently 1. Each parameter is then
+ * written as a varint tag, followed by a varint length and the UTF-8 bytes of
+ * its value. The tag is the {@link ReportField} ordinal plus one when the
+ * parameter is named after a {@link ReportField}. Otherwise the tag is 0 and
+ * is followed by the varint length and UTF-8 bytes of the parameter name.
+ * Varints are unsigned little-endian base 128 integers.
+ * </p>
+ * <p>
+ * A batch also starts with the version byte. Each report is then written as
+ * the varint number of its parameters, followed by its parameters.
+ * </p>
+ * <p>
+ * As their length is written first, {@link Reader} values are read in memory
+ * before being written.
+ * </p>
+ */
+public final class BinaryReportEncoder implements ReportEncoder {
+
+    private static final int VERSION = 1;
+    private static final Map<String, Integer> TAGS = new HashMap<String, Integer>();
+    static {
+        for (ReportField field : ReportField.values()) {
+            TAGS.put(field.toString(), field.ordinal() + 1);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/x-acra-report";
+    }
+
+    @Override
+    public void encode(Map<?, ?> parameters, OutputStream out) throws IOException {
+        out.write(VERSION);
+        writeParameters(parameters, out);
+    }
+
+    @Override
+    public void encodeBatch(List<? extends Map<?, ?>> batch, OutputStream out) throws IOException {
+        out.write(VERSION);
+        for (final Map<?, ?> parameters : batch) {
+            writeVarint(parameters.size(), out);
+            writeParameters(parameters, out);
+        }
+    }
+
+    private static void writeParameters(Map<?, ?> parameters, OutputStream out) throws IOException {
+        for (final Map.Entry<?, ?> parameter : parameters.entrySet()) {
+            final String name = parameter.getKey().toString();
+            final Integer tag = TAGS.get(name);
+            if (tag != null) {
+                writeVarint(tag, out);
+            } else {
+                writeVarint(0, out);
+                writeBytes(name.getBytes("UTF-8"), out);
+            }
+            writeBytes(getBytes(parameter.getValue()), out);
+        }
+    }
+
+    private static byte[] getBytes(Object value) throws IOException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!(value instanceof Reader)) {
+            return value.toString().getBytes("UTF-8");
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        final Writer writer = new OutputStreamWriter(bytes, "UTF-8");
+        final char[] buffer = new char[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+        int count;
+        while ((count = ((Reader) value).read(buffer)) != -1) {
+            writer.write(buffer, 0, count);
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes(byte[] bytes, OutputStream out) throws IOException {
+        writeVarint(bytes.length, out);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(int value, OutputStream out) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7f) != 0) {
+            out.write((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+/**
+ * A {@link ReportSender} which tells where it sends reports. ACRA keeps one
+ * circuit breaker per sender class and destination, so that two instances of
+ * the same sender posting to different servers are not skipped together when
+ * only one of the servers fails.
+ */
+public interface DestinationReportSender extends ReportSender {
+    /**
+     * @return An identifier of the destination of the reports, such as their
+     *         URL, which does not change between application runs. Null if
+     *         unknown.
+     */
+    public String getDestination();
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.acra.ACRAConstants;
+
+/**
+ * Encodes report parameters as an application/x-www-form-urlencoded body,
+ * the historical format posted by {@link HttpPostSender}. The output is the
+ * same as with {@link java.net.URLEncoder} in UTF-8, written byte by byte to
+ * the request body without intermediate strings.
+ * <p>
+ * In a batch, parameter names are followed by the index of their report
+ * between brackets, i.e. <code>STACK_TRACE[0]</code>,
+ * <code>STACK_TRACE[1]</code>...
+ * </p>
+ */
+public final class FormReportEncoder implements ReportEncoder {
+
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D',
+            'E', 'F' };
+
+    @Override
+    public String getContentType() {
+        return "application/x-www-form-urlencoded";
+    }
+
+    @Override
+    public void encode(Map<?, ?> parameters, OutputStream out) throws IOException {
+        encode(parameters, null, true, out);
+    }
+
+    @Override
+    public void encodeBatch(List<? extends Map<?, ?>> batch, OutputStream out) throws IOException {
+        boolean first = true;
+        for (int i = 0; i < batch.size(); i++) {
+            first = encode(batch.get(i), "[" + i + "]", first, out);
+        }
+    }
+
+    /**
+     * @param suffix
+     *            Appended to the parameter names, or null.
+     * @param first
+     *            true if no parameter has been written to the body yet.
+     * @return true if still no parameter has been written to the body.
+     */
+    private static boolean encode(Map<?, ?> parameters, String suffix, boolean first, OutputStream out)
+            throws IOException {
+        boolean noneWritten = first;
+        for (final Map.Entry<?, ?> parameter : parameters.entrySet()) {
+            if (!noneWritten) {
+                out.write('&');
+            }
+            noneWritten = false;
+            writeEncoded(parameter.getKey().toString(), out);
+            if (suffix != null) {
+                writeEncoded(suffix, out);
+            }
+            out.write('=');
+            if (parameter.getValue() instanceof Reader) {
+                writeEncoded((Reader) parameter.getValue(), out);
+            } else if (parameter.getValue() != null) {
+                writeEncoded(parameter.getValue().toString(), out);
+            }
+        }
+        return noneWritten;
+    }
+
+    private static void writeEncoded(Reader value, OutputStream out) throws IOException {
+        // Not closed, it would close the request body.
+        final Writer writer = new OutputStreamWriter(new EncodingOutputStream(out), "UTF-8");
+        final char[] buffer = new char[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+        int count;
+        while ((count = value.read(buffer)) != -1) {
+            writer.write(buffer, 0, count);
+        }
+        writer.flush();
+    }
+
+    private static void writeEncoded(String value, OutputStream out) throws IOException {
+        for (byte b : value.getBytes("UTF-8")) {
+            writeEncoded(b, out);
+        }
+    }
+
+    private static void writeEncoded(int b, OutputStream out) throws IOException {
+        if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '.' || b == '-'
+                || b == '*' || b == '_') {
+            out.write(b);
+        } else if (b == ' ') {
+            out.write('+');
+        } else {
+            out.write('%');
+            out.write(HEX_DIGITS[(b >> 4) & 0x0f]);
+            out.write(HEX_DIGITS[b & 0x0f]);
+        }
+    }
+
+    /**
+     * Responsible for URL-encoding the bytes written to it.
+     */
+    private static final class EncodingOutputStream extends FilterOutputStream {
+
+        private EncodingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            writeEncoded(b & 0xff, out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                writeEncoded(b[i] & 0xff, out);
+            }
+        }
+    }
+}
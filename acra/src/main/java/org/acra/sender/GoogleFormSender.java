@@ -37,7 +37,7 @@ import android.util.Log;
  * @author Kevin Gaudin
  * 
  */
-public class GoogleFormSender implements ReportSender {
+public class GoogleFormSender implements DestinationReportSender {
 
     private final Uri mFormUri;
 
@@ -65,8 +65,7 @@ public class GoogleFormSender implements ReportSender {
 
     @Override
     public void send(CrashReportData report) throws ReportSenderException {
-        Uri formUri = mFormUri == null ? Uri.parse(String.format(ACRA.getConfig().googleFormUrlFormat(), ACRA
-                .getConfig().formKey())) : mFormUri;
+        final Uri formUri = getFormUri();
         final Map<String, String> formParams = remap(report);
         // values observed in the GoogleDocs original html form
         formParams.put("pageNumber", "0");
@@ -82,6 +81,7 @@ public class GoogleFormSender implements ReportSender {
             request.setConnectionTimeOut(ACRA.getConfig().connectionTimeout());
             request.setSocketTimeOut(ACRA.getConfig().socketTimeout());
             request.setMaxNrRetries(ACRA.getConfig().maxNumberOfRequestRetries());
+            request.setTransportType(ACRA.getConfig().httpTransport());
             request.sendPost(reportUrl, formParams);
 
         } catch (IOException e) {
@@ -89,6 +89,19 @@ public class GoogleFormSender implements ReportSender {
         }
     }
 
+    /**
+     * @return The URL of the Google Form reports are posted to.
+     */
+    @Override
+    public String getDestination() {
+        return getFormUri().toString();
+    }
+
+    private Uri getFormUri() {
+        return mFormUri == null ? Uri.parse(String.format(ACRA.getConfig().googleFormUrlFormat(), ACRA.getConfig()
+                .formKey())) : mFormUri;
+    }
+
     private Map<String, String> remap(Map<ReportField, String> report) {
 
         ReportField[] fields = ACRA.getConfig().customReportContent();
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.acra.ReportField;
+import org.acra.annotation.ReportsCrashes;
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+
+import android.util.Log;
+
+/**
+ * <p>
+ * A {@link HttpPostSender} which posts several reports in a single request,
+ * used by ACRA when {@link ReportsCrashes#sendReportsInBatches()} is enabled.
+ * </p>
+ * 
+ * <p>
+ * The POST parameters of each report are named as with {@link HttpPostSender}
+ * and the batch is encoded in the configured format, see
+ * {@link ReportEncoder#encodeBatch(List, java.io.OutputStream)}. With the
+ * default form format, parameter names are followed by the index of the report
+ * in the batch between brackets, i.e. <code>STACK_TRACE[0]</code>,
+ * <code>STACK_TRACE[1]</code>... The server-side
+ * script has to answer with one line per report, in the same order, holding
+ * <code>OK</code> if the report has been accepted. Reports which are not
+ * accepted are sent again later.
+ * </p>
+ */
+public class HttpBatchPostSender extends HttpPostSender implements BatchReportSender {
+
+    /**
+     * Response line acknowledging a report.
+     */
+    private static final String ACCEPTED = "OK";
+
+    /**
+     * Create a new HttpBatchPostSender instance with its destination taken
+     * from {@link org.acra.ACRA#getConfig()} dynamically.
+     * 
+     * @param mapping
+     *            If null, POST parameters will be named with
+     *            {@link ReportField} values converted to String with
+     *            .toString(). If not null, POST parameters will be named with
+     *            the result of mapping.get(ReportField.SOME_FIELD);
+     */
+    public HttpBatchPostSender(Map<ReportField, String> mapping) {
+        super(mapping);
+    }
+
+    /**
+     * Create a new HttpBatchPostSender instance with a fixed destination
+     * provided as a parameter.
+     * 
+     * @param formUri
+     *            The URL of your server-side crash report collection script.
+     * @param mapping
+     *            If null, POST parameters will be named with
+     *            {@link ReportField} values converted to String with
+     *            .toString(). If not null, POST parameters will be named with
+     *            the result of mapping.get(ReportField.SOME_FIELD);
+     */
+    public HttpBatchPostSender(String formUri, Map<ReportField, String> mapping) {
+        super(formUri, mapping);
+    }
+
+    @Override
+    public void send(CrashReportReader report) throws ReportSenderException {
+        // Posted as a batch of one report, with the parameter names of batches.
+        try {
+            send(read(report));
+        } catch (IOException e) {
+            throw new ReportReadException("Error while reading report.", e);
+        }
+    }
+
+    @Override
+    public void send(CrashReportData report) throws ReportSenderException {
+        if (!send(Collections.singletonList(report))[0]) {
+            throw new ReportSenderException("Report was not accepted by the server.", null);
+        }
+    }
+
+    @Override
+    public boolean[] send(List<CrashReportData> reports) throws ReportSenderException {
+
+        try {
+            final List<Map<String, String>> batch = new ArrayList<Map<String, String>>(reports.size());
+            for (CrashReportData report : reports) {
+                batch.add(remap(report));
+            }
+            final URL reportUrl = getReportUrl();
+            Log.d(LOG_TAG, "Connect to " + reportUrl.toString() + " to send " + reports.size() + " reports");
+
+            final String response = createHttpRequest().sendBatchPost(reportUrl, batch);
+            if (response == null) {
+                throw new ReportSenderException("Server did not acknowledge the reports.", null);
+            }
+            return parseAcknowledgements(response, reports.size());
+
+        } catch (IOException e) {
+            throw new ReportSenderException("Error while sending reports to Http Post Form.", e);
+        }
+    }
+
+    private static boolean[] parseAcknowledgements(String response, int count) throws IOException {
+        final boolean[] accepted = new boolean[count];
+        final BufferedReader reader = new BufferedReader(new StringReader(response));
+        String line;
+        for (int i = 0; i < count && (line = reader.readLine()) != null; i++) {
+            accepted[i] = ACCEPTED.equals(line.trim());
+        }
+        return accepted;
+    }
+}
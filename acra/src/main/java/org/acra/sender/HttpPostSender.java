@@ -18,8 +18,10 @@ package org.acra.sender;
 import static org.acra.ACRA.LOG_TAG;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.acra.ACRA;
@@ -27,6 +29,7 @@ import org.acra.ACRAConstants;
 import org.acra.ReportField;
 import org.acra.annotation.ReportsCrashes;
 import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
 import org.acra.util.HttpRequest;
 
 import android.net.Uri;
@@ -69,13 +72,20 @@ import android.util.Log;
  * }
  * </pre>
  * 
+ * <p>
+ * Stored reports are posted as they are read from their file, field by field,
+ * so that large reports are never held in memory. Such posts are not retried
+ * on failure, the report is sent again later.
+ * </p>
+ * 
  * @author Kevin Gaudin
  * 
  */
-public class HttpPostSender implements ReportSender {
+public class HttpPostSender implements StreamingReportSender, DestinationReportSender {
 
     private final Uri mFormUri;
     private final Map<ReportField, String> mMapping;
+    private ReportEncoder mEncoder;
 
     /**
      * <p>
@@ -114,45 +124,105 @@ public class HttpPostSender implements ReportSender {
         mMapping = mapping;
     }
 
+    /**
+     * Sets the format in which this sender posts reports. By default, the
+     * encoder of {@link ReportsCrashes#formUriReportFormat()} is used.
+     * 
+     * @param encoder
+     *            The encoder writing the report parameters to the request
+     *            body, or null to use the configured format.
+     */
+    public void setReportEncoder(ReportEncoder encoder) {
+        mEncoder = encoder;
+    }
+
     @Override
     public void send(CrashReportData report) throws ReportSenderException {
 
         try {
             final Map<String, String> finalReport = remap(report);
-            final URL reportUrl = mFormUri == null ? new URL(ACRA.getConfig().formUri()) : new URL(mFormUri.toString());
+            final URL reportUrl = getReportUrl();
             Log.d(LOG_TAG, "Connect to " + reportUrl.toString());
 
-            final String login = isNull(ACRA.getConfig().formUriBasicAuthLogin()) ? null : ACRA.getConfig()
-                    .formUriBasicAuthLogin();
-            final String password = isNull(ACRA.getConfig().formUriBasicAuthPassword()) ? null : ACRA.getConfig()
-                    .formUriBasicAuthPassword();
+            createHttpRequest().sendPost(reportUrl, finalReport);
+
+        } catch (IOException e) {
+            throw new ReportSenderException("Error while sending report to Http Post Form.", e);
+        }
+    }
+
+    @Override
+    public void send(CrashReportReader report) throws ReportSenderException {
 
-            final HttpRequest request = new HttpRequest();
-            request.setConnectionTimeOut(ACRA.getConfig().connectionTimeout());
-            request.setSocketTimeOut(ACRA.getConfig().socketTimeout());
-            request.setMaxNrRetries(ACRA.getConfig().maxNumberOfRequestRetries());
-            request.setLogin(login);
-            request.setPassword(password);
-            request.sendPost(reportUrl, finalReport);
+        try {
+            createHttpRequest().sendStreamedPost(getReportUrl(),
+                    new StreamedReportParameters(report, getReportFields(), mMapping));
 
+        } catch (StreamedReportParameters.ReadException e) {
+            throw new ReportReadException("Error while reading report.", e.getCause());
         } catch (IOException e) {
             throw new ReportSenderException("Error while sending report to Http Post Form.", e);
         }
     }
 
+    /**
+     * @return The URL reports are posted to, or null if it is not valid.
+     */
+    @Override
+    public String getDestination() {
+        try {
+            return getReportUrl().toString();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The URL of the server-side crash report collection script.
+     * @throws MalformedURLException
+     *             if the formUri is not a valid URL.
+     */
+    protected URL getReportUrl() throws MalformedURLException {
+        return mFormUri == null ? new URL(ACRA.getConfig().formUri()) : new URL(mFormUri.toString());
+    }
+
+    /**
+     * @return A new {@link HttpRequest} using the timeouts and credentials
+     *         from {@link ACRA#getConfig()}.
+     */
+    protected HttpRequest createHttpRequest() {
+        final String login = isNull(ACRA.getConfig().formUriBasicAuthLogin()) ? null : ACRA.getConfig()
+                .formUriBasicAuthLogin();
+        final String password = isNull(ACRA.getConfig().formUriBasicAuthPassword()) ? null : ACRA.getConfig()
+                .formUriBasicAuthPassword();
+
+        final HttpRequest request = new HttpRequest();
+        request.setConnectionTimeOut(ACRA.getConfig().connectionTimeout());
+        request.setSocketTimeOut(ACRA.getConfig().socketTimeout());
+        request.setMaxNrRetries(ACRA.getConfig().maxNumberOfRequestRetries());
+        request.setLogin(login);
+        request.setPassword(password);
+        request.setCompressBody(ACRA.getConfig().compressHttpRequests());
+        request.setEncoder(mEncoder != null ? mEncoder : ACRA.getConfig().formUriReportFormat().getEncoder());
+        request.setTransportType(ACRA.getConfig().httpTransport());
+        return request;
+    }
+
     private static boolean isNull(String aString) {
         return aString == null || ACRAConstants.NULL_VALUE.equals(aString);
     }
 
-    private Map<String, String> remap(Map<ReportField, String> report) {
-
-        ReportField[] fields = ACRA.getConfig().customReportContent();
-        if (fields.length == 0) {
-            fields = ACRA.DEFAULT_REPORT_FIELDS;
-        }
+    /**
+     * @param report
+     *            The report to post.
+     * @return The POST parameters for the report fields, named with the
+     *         mapping given to the constructor if any, always in the same
+     *         order.
+     */
+    protected Map<String, String> remap(Map<ReportField, String> report) {
 
-        final Map<String, String> finalReport = new HashMap<String, String>(report.size());
-        for (ReportField field : fields) {
+        final Map<String, String> finalReport = new LinkedHashMap<String, String>(report.size());
+        for (ReportField field : getReportFields()) {
             if (mMapping == null || mMapping.get(field) == null) {
                 finalReport.put(field.toString(), report.get(field));
             } else {
@@ -161,4 +231,41 @@ public class HttpPostSender implements ReportSender {
         }
         return finalReport;
     }
+
+    /**
+     * @return The report fields posted, in their posting order.
+     */
+    protected ReportField[] getReportFields() {
+        final ReportField[] fields = ACRA.getConfig().customReportContent();
+        return fields.length == 0 ? ACRA.DEFAULT_REPORT_FIELDS : fields;
+    }
+
+    /**
+     * Reads a whole report in memory, for the senders which can't post it as
+     * it is read.
+     * 
+     * @param report
+     *            Cursor over the report fields.
+     * @return CrashReportData holding all the report fields.
+     * @throws IOException
+     *             if the report could not be read.
+     */
+    protected static CrashReportData read(CrashReportReader report) throws IOException {
+        final CrashReportData crashData = new CrashReportData();
+        final char[] buffer = new char[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+        while (report.next()) {
+            final Reader value = report.getValue();
+            if (value == null) {
+                crashData.put(report.getField(), null);
+                continue;
+            }
+            final StringBuilder content = new StringBuilder();
+            int count;
+            while ((count = value.read(buffer)) != -1) {
+                content.append(buffer, 0, count);
+            }
+            crashData.put(report.getField(), content.toString());
+        }
+        return crashData;
+    }
 }
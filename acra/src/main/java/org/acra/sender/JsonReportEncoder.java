@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.acra.ACRAConstants;
+
+/**
+ * Encodes report parameters as a flat JSON object of strings, in UTF-8,
+ * written to the request body as they are escaped. A batch is a JSON array of
+ * such objects.
+ */
+public final class JsonReportEncoder implements ReportEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public String getContentType() {
+        return "application/json; charset=UTF-8";
+    }
+
+    @Override
+    public void encode(Map<?, ?> parameters, OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"),
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        writeObject(parameters, writer);
+        // Flush without closing the request body.
+        writer.flush();
+    }
+
+    @Override
+    public void encodeBatch(List<? extends Map<?, ?>> batch, OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"),
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        writer.write('[');
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeObject(batch.get(i), writer);
+        }
+        writer.write(']');
+        // Flush without closing the request body.
+        writer.flush();
+    }
+
+    private static void writeObject(Map<?, ?> parameters, Writer writer) throws IOException {
+        writer.write('{');
+        boolean first = true;
+        for (final Map.Entry<?, ?> parameter : parameters.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writeString(parameter.getKey().toString(), writer);
+            writer.write(':');
+            if (parameter.getValue() instanceof Reader) {
+                writeString((Reader) parameter.getValue(), writer);
+            } else {
+                writeString(parameter.getValue() == null ? "" : parameter.getValue().toString(), writer);
+            }
+        }
+        writer.write('}');
+    }
+
+    private static void writeString(String value, Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            writeEscaped(value.charAt(i), writer);
+        }
+        writer.write('"');
+    }
+
+    private static void writeString(Reader value, Writer writer) throws IOException {
+        writer.write('"');
+        final char[] buffer = new char[ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES];
+        int count;
+        while ((count = value.read(buffer)) != -1) {
+            for (int i = 0; i < count; i++) {
+                writeEscaped(buffer[i], writer);
+            }
+        }
+        writer.write('"');
+    }
+
+    private static void writeEscaped(char c, Writer writer) throws IOException {
+        switch (c) {
+        case '"':
+            writer.write("\\\"");
+            break;
+        case '\\':
+            writer.write("\\\\");
+            break;
+        case '\n':
+            writer.write("\\n");
+            break;
+        case '\r':
+            writer.write("\\r");
+            break;
+        case '\t':
+            writer.write("\\t");
+            break;
+        default:
+            if (c < 0x20) {
+                writer.write("\\u00");
+                writer.write(HEX_DIGITS[(c >> 4) & 0x0f]);
+                writer.write(HEX_DIGITS[c & 0x0f]);
+            } else {
+                writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the parameters posted by an {@link HttpPostSender}, i.e. the report
+ * fields named with the sender mapping, into a request body.
+ * <p>
+ * Encoders must write the same bytes for the same parameters, so that a
+ * request can be resumed or sent again.
+ * </p>
+ */
+public interface ReportEncoder {
+    /**
+     * @return The Content-Type of the encoded request body.
+     */
+    public String getContentType();
+
+    /**
+     * Writes the parameters to the request body.
+     * 
+     * @param parameters
+     *            The parameters to encode, in their posting order. Null values
+     *            are encoded as empty strings. Values are written with their
+     *            toString(), except {@link java.io.Reader}s which are read up
+     *            to their end, e.g. report fields read from their file.
+     * @param out
+     *            The stream to which the request body is written. It is not
+     *            closed by the encoder.
+     * @throws IOException
+     *             if the body could not be written.
+     */
+    public void encode(Map<?, ?> parameters, OutputStream out) throws IOException;
+
+    /**
+     * Writes the parameters of several reports to a single request body, as
+     * posted by {@link HttpBatchPostSender}.
+     * 
+     * @param batch
+     *            The parameters of each report, in their posting order.
+     * @param out
+     *            The stream to which the request body is written. It is not
+     *            closed by the encoder.
+     * @throws IOException
+     *             if the body could not be written.
+     */
+    public void encodeBatch(List<? extends Map<?, ?>> batch, OutputStream out) throws IOException;
+}
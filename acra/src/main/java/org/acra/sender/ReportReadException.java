@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2010 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.IOException;
+
+import org.acra.collector.CrashReportReader;
+
+/**
+ * Thrown by a {@link StreamingReportSender} when the report it was given could
+ * not be read from its {@link CrashReportReader}. ACRA then deletes the report
+ * as corrupted instead of trying to send it again later.
+ */
+@SuppressWarnings("serial")
+public class ReportReadException extends ReportSenderException {
+
+    /**
+     * @param detailMessage
+     *            A message to explain the cause of this exception.
+     * @param cause
+     *            The error raised by the {@link CrashReportReader}.
+     */
+    public ReportReadException(String detailMessage, IOException cause) {
+        super(detailMessage, cause);
+    }
+
+    @Override
+    public IOException getCause() {
+        return (IOException) super.getCause();
+    }
+}
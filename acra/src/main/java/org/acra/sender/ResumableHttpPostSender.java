@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import static org.acra.ACRA.LOG_TAG;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+import org.acra.ACRA;
+import org.acra.ReportField;
+import org.acra.annotation.ReportsCrashes;
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+import org.acra.util.HttpRequest;
+
+import android.util.Log;
+
+/**
+ * <p>
+ * A {@link HttpPostSender} which posts each report in chunks of
+ * {@link ReportsCrashes#uploadChunkSize()} bytes, used by ACRA when this size
+ * is set. When a connection fails in the middle of a large report, the next
+ * attempt resumes where the server stopped receiving it.
+ * </p>
+ * 
+ * <p>
+ * The report {@link ReportField#REPORT_ID} identifies the upload. Your
+ * server-side script has to implement the protocol described in
+ * {@link HttpRequest#sendResumablePost(URL, String, Map, int)}, and handle the
+ * report once all of its bytes have been received. Reports without a
+ * REPORT_ID are posted in a single request.
+ * </p>
+ */
+public class ResumableHttpPostSender extends HttpPostSender {
+
+    /**
+     * Create a new ResumableHttpPostSender instance with its destination taken
+     * from {@link ACRA#getConfig()} dynamically.
+     * 
+     * @param mapping
+     *            If null, POST parameters will be named with
+     *            {@link ReportField} values converted to String with
+     *            .toString(). If not null, POST parameters will be named with
+     *            the result of mapping.get(ReportField.SOME_FIELD);
+     */
+    public ResumableHttpPostSender(Map<ReportField, String> mapping) {
+        super(mapping);
+    }
+
+    /**
+     * Create a new ResumableHttpPostSender instance with a fixed destination
+     * provided as a parameter.
+     * 
+     * @param formUri
+     *            The URL of your server-side crash report collection script.
+     * @param mapping
+     *            If null, POST parameters will be named with
+     *            {@link ReportField} values converted to String with
+     *            .toString(). If not null, POST parameters will be named with
+     *            the result of mapping.get(ReportField.SOME_FIELD);
+     */
+    public ResumableHttpPostSender(String formUri, Map<ReportField, String> mapping) {
+        super(formUri, mapping);
+    }
+
+    @Override
+    public void send(CrashReportReader report) throws ReportSenderException {
+        if (ACRA.getConfig().uploadChunkSize() <= 0) {
+            super.send(report);
+            return;
+        }
+        // The whole body is needed to post it in chunks.
+        try {
+            send(read(report));
+        } catch (IOException e) {
+            throw new ReportReadException("Error while reading report.", e);
+        }
+    }
+
+    @Override
+    public void send(CrashReportData report) throws ReportSenderException {
+        final String uploadId = report.get(ReportField.REPORT_ID);
+        final int chunkSize = ACRA.getConfig().uploadChunkSize();
+        if (uploadId == null || chunkSize <= 0) {
+            super.send(report);
+            return;
+        }
+
+        try {
+            final Map<String, String> finalReport = remap(report);
+            final URL reportUrl = getReportUrl();
+            Log.d(LOG_TAG, "Connect to " + reportUrl.toString());
+
+            createHttpRequest().sendResumablePost(reportUrl, uploadId, finalReport, chunkSize);
+
+        } catch (IOException e) {
+            throw new ReportSenderException("Error while sending report to Http Post Form.", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.acra.ReportField;
+import org.acra.collector.CrashReportReader;
+
+/**
+ * The POST parameters of a report read field by field, named as
+ * {@link HttpPostSender#remap(Map)} names them. The values are
+ * {@link Reader}s on the report file.
+ * <p>
+ * The parameters can be iterated only once, and each value can only be read
+ * until the next parameter is reached. Fields are posted in their stored
+ * order, followed by the configured fields missing from the report with null
+ * values.
+ * </p>
+ */
+final class StreamedReportParameters extends AbstractMap<String, Reader> {
+
+    /**
+     * Thrown while iterating the parameters or reading their values when the
+     * report could not be read.
+     */
+    static final class ReadException extends RuntimeException {
+
+        private static final long serialVersionUID = -3290536213871452011L;
+
+        private ReadException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private final CrashReportReader report;
+    private final ReportField[] fields;
+    private final Map<ReportField, String> mapping;
+    private boolean iterated;
+
+    /**
+     * @param report
+     *            Cursor over the report fields.
+     * @param fields
+     *            The fields to post, all the others are skipped.
+     * @param mapping
+     *            The POST parameter names of the fields, or null to name them
+     *            after the fields.
+     */
+    StreamedReportParameters(CrashReportReader report, ReportField[] fields, Map<ReportField, String> mapping) {
+        this.report = report;
+        this.fields = fields;
+        this.mapping = mapping;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Reader>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Reader>>() {
+            @Override
+            public Iterator<Map.Entry<String, Reader>> iterator() {
+                if (iterated) {
+                    throw new IllegalStateException("Report parameters can only be iterated once");
+                }
+                iterated = true;
+                return new ParameterIterator();
+            }
+
+            @Override
+            public int size() {
+                throw new UnsupportedOperationException("Report parameters can only be iterated");
+            }
+        };
+    }
+
+    private String getName(ReportField field) {
+        return mapping == null || mapping.get(field) == null ? field.toString() : mapping.get(field);
+    }
+
+    private final class ParameterIterator implements Iterator<Map.Entry<String, Reader>> {
+
+        private final Set<ReportField> remainingFields = EnumSet.noneOf(ReportField.class);
+        private boolean reportRead;
+        private int missingField;
+        private Map.Entry<String, Reader> next;
+
+        private ParameterIterator() {
+            remainingFields.addAll(Arrays.asList(fields));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = findNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Reader> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String, Reader> parameter = next;
+            next = null;
+            return parameter;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private Map.Entry<String, Reader> findNext() {
+            try {
+                while (!reportRead && report.next()) {
+                    if (remainingFields.remove(report.getField())) {
+                        final Reader value = report.getValue();
+                        return new Parameter(getName(report.getField()), value == null ? null : new ValueReader(
+                                value));
+                    }
+                }
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
+            reportRead = true;
+
+            // Configured fields missing from the report are posted empty.
+            while (missingField < fields.length) {
+                final ReportField field = fields[missingField++];
+                if (remainingFields.remove(field)) {
+                    return new Parameter(getName(field), null);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reports the errors of a value as {@link ReadException}s, so that they are
+     * not mistaken for errors of the stream the value is written to.
+     */
+    private static final class ValueReader extends FilterReader {
+
+        private ValueReader(Reader value) {
+            super(value);
+        }
+
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            try {
+                return super.read(buffer, offset, count);
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
+        }
+
+        @Override
+        public long skip(long count) {
+            try {
+                return super.skip(count);
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
+        }
+    }
+
+    private static final class Parameter implements Map.Entry<String, Reader> {
+
+        private final String name;
+        private final Reader value;
+
+        private Parameter(String name, Reader value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return name;
+        }
+
+        @Override
+        public Reader getValue() {
+            return value;
+        }
+
+        @Override
+        public Reader setValue(Reader value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
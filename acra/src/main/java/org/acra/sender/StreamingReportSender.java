@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.sender;
+
+import org.acra.ReportFileFormat;
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+
+/**
+ * A {@link ReportSender} which can read reports field by field instead of
+ * receiving a whole {@link CrashReportData}. ACRA calls
+ * {@link #send(CrashReportReader)} instead of
+ * {@link ReportSender#send(CrashReportData)} for senders implementing this
+ * interface when the report file is larger than 256 KB. Smaller reports are
+ * loaded in memory, so that their requests can be sent again.
+ * <p>
+ * Reports stored with {@link ReportFileFormat#BINARY} are then read directly
+ * from the report file with a fixed size buffer, whatever the size of their
+ * fields. Reports stored with other formats are loaded in memory first.
+ * </p>
+ */
+public interface StreamingReportSender extends ReportSender {
+    /**
+     * Send crash report data read from a {@link CrashReportReader}. The reader
+     * is closed by ACRA once this method returns.
+     * 
+     * @param report
+     *            Cursor over the report fields, in their stored order.
+     * @throws ReportReadException
+     *             If the report could not be read. ACRA deletes it as
+     *             corrupted.
+     * @throws ReportSenderException
+     *             If anything goes fatally wrong during the handling of crash
+     *             data, you can (should) throw a {@link ReportSenderException}
+     *             with a custom message.
+     */
+    public void send(CrashReportReader report) throws ReportSenderException;
+}
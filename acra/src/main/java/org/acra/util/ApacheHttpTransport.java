@@ -0,0 +1,163 @@
+package org.acra.util;
+
+import org.acra.ACRA;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.params.CookiePolicy;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for executing posts with the Apache HttpClient bundled with Android.
+ * <p>
+ * All the posts share one connection manager, so that successive reports sent to the same host reuse the same
+ * connection. Any HTTPS certificate is accepted.
+ * </p>
+ */
+final class ApacheHttpTransport implements HttpTransport {
+
+    /**
+     * Connection manager shared by all the requests.
+     */
+    private static ClientConnectionManager connectionManager;
+
+    private static class SocketTimeOutRetryHandler implements HttpRequestRetryHandler {
+
+        private final HttpParams httpParams;
+        private final int maxNrRetries;
+
+        /**
+         * @param httpParams    HttpParams that will be used in the HttpRequest.
+         * @param maxNrRetries  Max number of times to retry Request on failure due to SocketTimeOutException.
+         */
+        private SocketTimeOutRetryHandler(HttpParams httpParams, int maxNrRetries) {
+            this.httpParams = httpParams;
+            this.maxNrRetries = maxNrRetries;
+        }
+
+        @Override
+        public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+            if (exception instanceof SocketTimeoutException) {
+                if (executionCount <= maxNrRetries) {
+
+                    if (httpParams != null) {
+                        final int newSocketTimeOut = HttpConnectionParams.getSoTimeout(httpParams) * 2;
+                        HttpConnectionParams.setSoTimeout(httpParams, newSocketTimeOut);
+                        HttpRequest.getLog().d(ACRA.LOG_TAG, "SocketTimeOut - increasing time out to " + newSocketTimeOut + " millis and trying again");
+                    } else {
+                        HttpRequest.getLog().d(ACRA.LOG_TAG, "SocketTimeOut - no HttpParams, cannot increase time out. Trying again with current settings");
+                    }
+
+                    return true;
+                }
+
+                HttpRequest.getLog().d(ACRA.LOG_TAG, "SocketTimeOut but exceeded max number of retries : " + maxNrRetries);
+            }
+
+            return false;
+        }
+    }
+
+    private final int connectionTimeOut;
+    private final int socketTimeOut;
+    private final int maxNrRetries;
+
+    /**
+     * @param connectionTimeOut Time in milliseconds to wait for a connection.
+     * @param socketTimeOut     Time in milliseconds to wait for data.
+     * @param maxNrRetries      Max number of times to retry a post on failure due to SocketTimeOutException.
+     */
+    ApacheHttpTransport(int connectionTimeOut, int socketTimeOut, int maxNrRetries) {
+        this.connectionTimeOut = connectionTimeOut;
+        this.socketTimeOut = socketTimeOut;
+        this.maxNrRetries = maxNrRetries;
+    }
+
+    @Override
+    public Response post(URL url, Map<String, String> headers, EncodedEntity body) throws IOException {
+        final HttpPost httpPost = new HttpPost(url.toString());
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            httpPost.setHeader(header.getKey(), header.getValue());
+        }
+        httpPost.setEntity(body);
+
+        final HttpResponse response = getHttpClient().execute(httpPost, new BasicHttpContext());
+        final Map<String, String> responseHeaders = new HashMap<String, String>();
+        for (final Header header : response.getAllHeaders()) {
+            final String name = header.getName().toLowerCase(Locale.ENGLISH);
+            if (!responseHeaders.containsKey(name)) {
+                responseHeaders.put(name, header.getValue());
+            }
+        }
+        // Reading the whole content releases the connection to the shared pool.
+        final HttpEntity entity = response.getEntity();
+        final String content = entity == null ? "" : EntityUtils.toString(entity);
+        return new Response(response.getStatusLine().getStatusCode(), responseHeaders, content);
+    }
+
+    /**
+     * @return HttpClient to use for a post.
+     */
+    private HttpClient getHttpClient() {
+        final HttpParams httpParams = new BasicHttpParams();
+        httpParams.setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.RFC_2109);
+        HttpConnectionParams.setConnectionTimeout(httpParams, connectionTimeOut);
+        HttpConnectionParams.setSoTimeout(httpParams, socketTimeOut);
+        HttpConnectionParams.setSocketBufferSize(httpParams, 8192);
+        ConnManagerParams.setTimeout(httpParams, connectionTimeOut);
+
+        final DefaultHttpClient httpClient = new DefaultHttpClient(getConnectionManager(), httpParams);
+
+        final HttpRequestRetryHandler retryHandler = new SocketTimeOutRetryHandler(httpParams, maxNrRetries);
+        httpClient.setHttpRequestRetryHandler(retryHandler);
+
+        return httpClient;
+    }
+
+    /**
+     * @return The connection manager shared by all the requests.
+     */
+    private static synchronized ClientConnectionManager getConnectionManager() {
+        if (connectionManager == null) {
+            final SchemeRegistry registry = new SchemeRegistry();
+            registry.register(new Scheme("http", new PlainSocketFactory(), 80));
+            registry.register(new Scheme("https", (new FakeSocketFactory()), 443));
+
+            connectionManager = new ThreadSafeClientConnManager(new BasicHttpParams(), registry);
+        }
+        return connectionManager;
+    }
+
+    /**
+     * Closes the connections kept alive for the next posts.
+     */
+    static synchronized void closeIdleConnections() {
+        if (connectionManager != null) {
+            connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+}
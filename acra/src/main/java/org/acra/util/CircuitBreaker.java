@@ -0,0 +1,119 @@
+package org.acra.util;
+
+/**
+ * Responsible for stopping calls to something which keeps failing.
+ * <p>
+ * The breaker is closed while calls succeed. It opens once a number of calls failed in a row, and refuses calls until
+ * a reset timeout has elapsed. It is then half-open: the next call is a trial which closes the breaker if it succeeds
+ * or opens it again if it fails. The state of the breaker is exposed so that it can be persisted and restored.
+ * </p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * States of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /** Calls are allowed. */
+        CLOSED,
+        /** Calls are refused until the reset timeout has elapsed. */
+        OPEN,
+        /** The next call is allowed as a trial. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long resetTimeout;
+
+    private int failures;
+    private long openedTime;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param failureThreshold  Number of failures in a row which open the breaker, 0 to never open it.
+     * @param resetTimeout      Time in milliseconds during which the breaker stays open.
+     */
+    public CircuitBreaker(int failureThreshold, long resetTimeout) {
+        this(failureThreshold, resetTimeout, 0, 0);
+    }
+
+    /**
+     * Restores a breaker.
+     *
+     * @param failureThreshold  Number of failures in a row which open the breaker, 0 to never open it.
+     * @param resetTimeout      Time in milliseconds during which the breaker stays open.
+     * @param failures          Number of failures in a row.
+     * @param openedTime        Last time in milliseconds the breaker has been opened.
+     */
+    public CircuitBreaker(int failureThreshold, long resetTimeout, int failures, long openedTime) {
+        this.failureThreshold = failureThreshold;
+        this.resetTimeout = resetTimeout;
+        this.failures = failures;
+        this.openedTime = openedTime;
+    }
+
+    /**
+     * @param now   Current time in milliseconds.
+     * @return State of the breaker at this time.
+     */
+    public synchronized State getState(long now) {
+        if (failureThreshold <= 0 || failures < failureThreshold) {
+            return State.CLOSED;
+        }
+        // If the clock has been set back, don't keep the breaker open until it catches up.
+        if (now >= openedTime + resetTimeout || now < openedTime) {
+            return State.HALF_OPEN;
+        }
+        return State.OPEN;
+    }
+
+    /**
+     * @param now   Current time in milliseconds.
+     * @return true if a call can be made at this time.
+     */
+    public synchronized boolean allowRequest(long now) {
+        return getState(now) != State.OPEN;
+    }
+
+    /**
+     * @return The time in milliseconds at which an open breaker becomes half-open.
+     */
+    public synchronized long getResetTime() {
+        return openedTime + resetTimeout;
+    }
+
+    /**
+     * Records a successful call, which closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        failures = 0;
+        openedTime = 0;
+    }
+
+    /**
+     * Records a failed call, which opens the breaker once the failure threshold is reached or if it was half-open.
+     *
+     * @param now   Current time in milliseconds.
+     */
+    public synchronized void recordFailure(long now) {
+        failures++;
+        if (failureThreshold > 0 && failures >= failureThreshold) {
+            openedTime = now;
+        }
+    }
+
+    /**
+     * @return Number of failed calls in a row.
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return Last time in milliseconds the breaker has been opened.
+     */
+    public synchronized long getOpenedTime() {
+        return openedTime;
+    }
+}
@@ -0,0 +1,175 @@
+package org.acra.util;
+
+import org.acra.ACRAConstants;
+import org.acra.sender.ReportEncoder;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Responsible for writing a request body to the connection while it is being encoded.
+ * <p>
+ * The body is either parameters, or a batch of reports parameters, encoded by a {@link ReportEncoder}, or a range of
+ * bytes already encoded. Parameters are
+ * encoded through a buffer of a fixed size, so that the whole body is never held in memory. The entity is repeatable
+ * unless its parameters can only be iterated once: a request sent again encodes the parameters again.
+ * </p>
+ * <p>
+ * An uncompressed repeatable body is sent with a Content-Length, as some servers and proxies refuse chunked requests:
+ * its parameters are encoded once, the first time the length is needed, and the encoded bytes are written on each
+ * send. Compressed bodies and parameters which can only be iterated once are encoded while they are written, and sent
+ * chunked.
+ * </p>
+ */
+final class EncodedEntity extends AbstractHttpEntity {
+
+    private final ReportEncoder encoder;
+    private final Map<?, ?> parameters;
+    private final List<? extends Map<?, ?>> batch;
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final boolean repeatable;
+
+    private boolean compressed;
+    private byte[] encoded;
+
+    /**
+     * @param encoder       ReportEncoder writing the parameters.
+     * @param parameters    Parameters to post.
+     * @param repeatable    false if the parameters can only be iterated once.
+     */
+    EncodedEntity(ReportEncoder encoder, Map<?, ?> parameters, boolean repeatable) {
+        this.encoder = encoder;
+        this.parameters = parameters;
+        this.batch = null;
+        this.bytes = null;
+        this.offset = 0;
+        this.length = 0;
+        this.repeatable = repeatable;
+        setContentType(encoder.getContentType());
+    }
+
+    /**
+     * @param encoder       ReportEncoder writing the batch.
+     * @param batch         Parameters of each report to post.
+     */
+    EncodedEntity(ReportEncoder encoder, List<? extends Map<?, ?>> batch) {
+        this.encoder = encoder;
+        this.parameters = null;
+        this.batch = batch;
+        this.bytes = null;
+        this.offset = 0;
+        this.length = 0;
+        this.repeatable = true;
+        setContentType(encoder.getContentType());
+    }
+
+    /**
+     * @param contentType   Content-Type of the bytes.
+     * @param bytes         Encoded body.
+     * @param offset        Offset of the range to post in the body.
+     * @param length        Number of bytes to post.
+     */
+    EncodedEntity(String contentType, byte[] bytes, int offset, int length) {
+        this.encoder = null;
+        this.parameters = null;
+        this.batch = null;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.repeatable = true;
+        setContentType(contentType);
+    }
+
+    /**
+     * @param compressed    true to write the body with gzip Content-Encoding.
+     */
+    void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+        setContentEncoding(compressed ? "gzip" : null);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        if (compressed || !repeatable) {
+            return -1;
+        }
+        if (bytes != null) {
+            return length;
+        }
+        try {
+            return getEncoded().length;
+        } catch (IOException e) {
+            // Let the encoder fail again when sending.
+            return -1;
+        }
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        writeTo(content);
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+        final GZIPOutputStream gzip = compressed ? new GZIPOutputStream(out) : null;
+        final OutputStream body = new BufferedOutputStream(gzip != null ? gzip : out,
+                ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        if (bytes != null) {
+            body.write(bytes, offset, length);
+        } else if (encoded != null && !compressed) {
+            body.write(encoded);
+        } else {
+            encode(body);
+        }
+        body.flush();
+        if (gzip != null) {
+            // Don't close the connection stream.
+            gzip.finish();
+        }
+    }
+
+    /**
+     * @return The parameters encoded, kept to be written on each send.
+     */
+    private byte[] getEncoded() throws IOException {
+        if (encoded == null) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+            encode(out);
+            encoded = out.toByteArray();
+        }
+        return encoded;
+    }
+
+    private void encode(OutputStream out) throws IOException {
+        if (batch != null) {
+            encoder.encodeBatch(batch, out);
+        } else {
+            encoder.encode(parameters, out);
+        }
+    }
+}
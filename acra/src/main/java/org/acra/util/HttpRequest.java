@@ -6,94 +6,76 @@
 package org.acra.util;
 
 import org.acra.ACRA;
+import org.acra.ACRAConstants;
+import org.acra.HttpTransportType;
 import org.acra.log.ACRALog;
 import org.acra.log.AndroidLogDelegate;
-import org.apache.http.HttpResponse;
-import org.apache.http.StatusLine;
+import org.acra.sender.FormReportEncoder;
+import org.acra.sender.ReportEncoder;
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.HttpRequestRetryHandler;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.params.ClientPNames;
-import org.apache.http.client.params.CookiePolicy;
-import org.apache.http.conn.ClientConnectionManager;
-import org.apache.http.conn.scheme.PlainSocketFactory;
-import org.apache.http.conn.scheme.Scheme;
-import org.apache.http.conn.scheme.SchemeRegistry;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.net.URLEncoder;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class HttpRequest {
 
-    private static ACRALog log = new AndroidLogDelegate();
-
-    private static class SocketTimeOutRetryHandler implements HttpRequestRetryHandler {
-
-        private final HttpParams httpParams;
-        private final int maxNrRetries;
-
-        /**
-         * @param httpParams    HttpParams that will be used in the HttpRequest.
-         * @param maxNrRetries  Max number of times to retry Request on failure due to SocketTimeOutException.
-         */
-        private SocketTimeOutRetryHandler(HttpParams httpParams, int maxNrRetries) {
-            this.httpParams = httpParams;
-            this.maxNrRetries = maxNrRetries;
-        }
-
-        @Override
-        public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
-            if (exception instanceof SocketTimeoutException) {
-                if (executionCount <= maxNrRetries) {
-
-                    if (httpParams != null) {
-                        final int newSocketTimeOut = HttpConnectionParams.getSoTimeout(httpParams) * 2;
-                        HttpConnectionParams.setSoTimeout(httpParams, newSocketTimeOut);
-                        log.d(ACRA.LOG_TAG, "SocketTimeOut - increasing time out to " + newSocketTimeOut + " millis and trying again");
-                    } else {
-                        log.d(ACRA.LOG_TAG, "SocketTimeOut - no HttpParams, cannot increase time out. Trying again with current settings");
-                    }
+    /**
+     * Header identifying a resumable upload.
+     */
+    public static final String HEADER_UPLOAD_ID = "X-Upload-Id";
 
-                    return true;
-                }
+    /**
+     * Header holding the offset of a chunk of a resumable upload, and the
+     * number of bytes received by the server in its response.
+     */
+    public static final String HEADER_UPLOAD_OFFSET = "X-Upload-Offset";
 
-                log.d(ACRA.LOG_TAG, "SocketTimeOut but exceeded max number of retries : " + maxNrRetries);
-            }
+    /**
+     * Header holding the total length of a resumable upload.
+     */
+    public static final String HEADER_UPLOAD_LENGTH = "X-Upload-Length";
 
-            return false;  //To change body of implemented methods use File | Settings | File Templates.
-        }
-    }
+    private static ACRALog log = new AndroidLogDelegate();
 
+    /**
+     * URLs which answered that they don't accept compressed requests.
+     */
+    private static final Set<String> uncompressedUrls = new HashSet<String>();
 
     /**
-     * By default HttpRequest uses the Android logging system.
+     * By default HttpRequest uses the Android logging system. Another log is
+     * needed to post outside of Android, such as from JVM tests.
      *
      * @param log   ACRALog to use for all HttpRequest instances.
      */
-    static void setLog(ACRALog log) {
+    public static void setLog(ACRALog log) {
         HttpRequest.log = log;
     }
 
+    /**
+     * @return ACRALog used by all HttpRequest instances and their transports.
+     */
+    static ACRALog getLog() {
+        return log;
+    }
+
     private String login;
     private String password;
     private int connectionTimeOut = 3000;
     private int socketTimeOut = 3000;
     private int maxNrRetries = 3;
+    private boolean compressBody = false;
+    private ReportEncoder encoder = new FormReportEncoder();
+    private HttpTransportType transportType = HttpTransportType.APACHE_HTTP_CLIENT;
 
     public void setLogin(String login) {
         this.login = login;
@@ -120,17 +102,44 @@ public final class HttpRequest {
         this.maxNrRetries = maxNrRetries;
     }
 
+    /**
+     * Parameters are posted as application/x-www-form-urlencoded by default.
+     *
+     * @param encoder   ReportEncoder writing the parameters to the request body.
+     */
+    public void setEncoder(ReportEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Requests are executed with the Apache HttpClient by default.
+     *
+     * @param transportType HTTP client library executing the requests.
+     */
+    public void setTransportType(HttpTransportType transportType) {
+        this.transportType = transportType;
+    }
+
+    /**
+     * Request bodies are not compressed by default. When compressed, a URL
+     * answering with a 415 (Unsupported Media Type) error gets the request
+     * again uncompressed, as well as all the following requests.
+     *
+     * @param compressBody  true to send request bodies with gzip Content-Encoding.
+     */
+    public void setCompressBody(boolean compressBody) {
+        this.compressBody = compressBody;
+    }
+
     /**
      * Posts to a URL.
      *
      * @param url           URL to which to post.
      * @param parameters    Map of parameters to post to a URL.
+     * @return Content of the response.
      * @throws IOException if the data cannot be posted.
      */
-    public void sendPost(URL url, Map<?, ?> parameters) throws IOException {
-
-        final HttpClient httpClient = getHttpClient();
-        final HttpPost httpPost = getHttpPost(url, parameters);
+    public String sendPost(URL url, Map<?, ?> parameters) throws IOException {
 
         log.d(ACRA.LOG_TAG, "Sending request to " + url);
         if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HttpPost params : ");
@@ -138,47 +147,174 @@ public final class HttpRequest {
             if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, " key : '" + key + "'    value: '" + parameters.get(key) + "'");
         }
 
-        final HttpResponse response = httpClient.execute(httpPost, new BasicHttpContext());
-        if (response != null) {
-            final StatusLine statusLine = response.getStatusLine();
-            if (statusLine != null) {
-                final String statusCode = Integer.toString(response.getStatusLine().getStatusCode());
-                if (statusCode.startsWith("4") || statusCode.startsWith("5")) {
-                    if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "Could not send HttpPost : " + httpPost);
-                    throw new IOException("Host returned error code " + statusCode);
-                }
+        return post(url, new EncodedEntity(encoder, parameters, true));
+    }
+
+    /**
+     * Posts the parameters of several reports in a single request, encoded
+     * with {@link ReportEncoder#encodeBatch(List, java.io.OutputStream)}.
+     *
+     * @param url       URL to which to post.
+     * @param batch     Parameters of each report to post.
+     * @return Content of the response.
+     * @throws IOException if the data cannot be posted.
+     */
+    public String sendBatchPost(URL url, List<? extends Map<?, ?>> batch) throws IOException {
+        log.d(ACRA.LOG_TAG, "Sending batch of " + batch.size() + " reports to " + url);
+        return post(url, new EncodedEntity(encoder, batch));
+    }
+
+    /**
+     * Posts parameters which can only be iterated once, like the fields of a
+     * report read from its file one at a time. The body is sent chunked, and
+     * the post is not retried on failure: neither when the response times
+     * out, nor uncompressed when the URL does not accept compressed requests.
+     *
+     * @param url           URL to which to post.
+     * @param parameters    Map of parameters to post to a URL, iterated once.
+     * @return Content of the response.
+     * @throws IOException if the data cannot be posted.
+     */
+    public String sendStreamedPost(URL url, Map<?, ?> parameters) throws IOException {
+        log.d(ACRA.LOG_TAG, "Sending streamed request to " + url);
+        return post(url, new EncodedEntity(encoder, parameters, false));
+    }
+
+    private String post(URL url, EncodedEntity body) throws IOException {
+        final HttpTransport.Response response = execute(url, getHeaders(), body);
+        final int statusCode = response.getStatusCode();
+        if (statusCode >= 400) {
+            if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "Could not send HttpPost to " + url);
+            throw new IOException("Host returned error code " + statusCode);
+        }
+
+        if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HttpResponse Status : " + statusCode);
+        final String content = response.getContent();
+        if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HttpResponse Content : " + content.substring(0, Math.min(content.length(), 200)));
+        return content;
+    }
+
+    /**
+     * Posts parameters to a URL in chunks, so that an upload which failed can
+     * be resumed where the server stopped receiving it instead of restarting
+     * from zero.
+     * <p>
+     * Each chunk is posted with the headers {@value #HEADER_UPLOAD_ID}, which
+     * identifies the upload, {@value #HEADER_UPLOAD_OFFSET}, the offset of the
+     * chunk in the body, and {@value #HEADER_UPLOAD_LENGTH}, the length of the
+     * whole body. The server appends the chunk if its offset is the length it
+     * already received, and always answers with the received length in the
+     * {@value #HEADER_UPLOAD_OFFSET} header. Bodies larger than a chunk start
+     * with an empty chunk asking the server how much it already received.
+     * </p>
+     *
+     * @param url           URL to which to post.
+     * @param uploadId      Identifier of the upload, the same for all the attempts to post these parameters.
+     * @param parameters    Map of parameters to post to a URL. Their order must be the same for all the attempts.
+     * @param chunkSize     Maximum number of bytes posted in one request.
+     * @throws IOException if the data cannot be posted.
+     */
+    public void sendResumablePost(URL url, String uploadId, Map<?, ?> parameters, int chunkSize) throws IOException {
+        final byte[] body = encode(parameters);
+        log.d(ACRA.LOG_TAG, "Sending " + body.length + " bytes in chunks to " + url);
+
+        long offset = 0;
+        if (body.length > chunkSize) {
+            // Resume a previous attempt if the server received part of it.
+            offset = sendChunk(url, uploadId, body, 0, 0);
+        }
+        while (offset < body.length) {
+            final int length = (int) Math.min(chunkSize, body.length - offset);
+            final long received = sendChunk(url, uploadId, body, offset, length);
+            if (received <= offset) {
+                throw new IOException("Host did not accept chunk at offset " + offset + " of upload " + uploadId);
             }
+            offset = received;
+        }
+    }
 
-            if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HttpResponse Status : " + (statusLine != null ? statusLine.getStatusCode() : "NoStatusLine#noCode"));
-            final String content = EntityUtils.toString(response.getEntity());
-            if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HttpResponse Content : " + content.substring(0, Math.min(content.length(), 200)));
+    /**
+     * Posts one chunk of a resumable upload.
+     *
+     * @return Number of bytes of the body received by the server.
+     * @throws IOException if the chunk cannot be posted.
+     */
+    private long sendChunk(URL url, String uploadId, byte[] body, long offset, int length) throws IOException {
+        final Map<String, String> headers = getHeaders();
+        headers.put(HEADER_UPLOAD_ID, uploadId);
+        headers.put(HEADER_UPLOAD_OFFSET, Long.toString(offset));
+        headers.put(HEADER_UPLOAD_LENGTH, Integer.toString(body.length));
+        final EncodedEntity chunk = new EncodedEntity(encoder.getContentType(), body, (int) offset, length);
+
+        if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "Sending chunk of " + length + " bytes at offset " + offset);
+        final HttpTransport.Response response = execute(url, headers, chunk);
+        final int statusCode = response.getStatusCode();
+        if (statusCode >= 400) {
+            throw new IOException("Host returned error code " + statusCode);
+        }
 
-        } else {
-            if (ACRA.DEV_LOGGING) log.d(ACRA.LOG_TAG, "HTTP no Response!!");
+        final String received = response.getHeader(HEADER_UPLOAD_OFFSET);
+        if (received == null) {
+            throw new IOException("Host did not acknowledge chunk at offset " + offset + " of upload " + uploadId);
+        }
+        try {
+            return Long.parseLong(received.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Host returned invalid upload offset " + received);
         }
     }
 
     /**
-     * @return HttpClient to use with this HttpRequest.
+     * Executes a post with the given content, compressed if requested and
+     * accepted by the URL.
      */
-    private HttpClient getHttpClient() {
-        final HttpParams httpParams = new BasicHttpParams();
-        httpParams.setParameter(ClientPNames.COOKIE_POLICY, CookiePolicy.RFC_2109);
-        HttpConnectionParams.setConnectionTimeout(httpParams, connectionTimeOut);
-        HttpConnectionParams.setSoTimeout(httpParams, socketTimeOut);
-        HttpConnectionParams.setSocketBufferSize(httpParams, 8192);
+    private HttpTransport.Response execute(URL url, Map<String, String> headers, EncodedEntity content) throws IOException {
+        final HttpTransport transport = getTransport();
+        if (compressBody && !isCompressionRefused(url)) {
+            content.setCompressed(true);
+            final HttpTransport.Response response = transport.post(url, headers, content);
+            if (response.getStatusCode() != HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+                return response;
+            }
 
-        final SchemeRegistry registry = new SchemeRegistry();
-        registry.register(new Scheme("http", new PlainSocketFactory(), 80));
-        registry.register(new Scheme("https", (new FakeSocketFactory()), 443));
+            log.w(ACRA.LOG_TAG, url + " does not accept compressed requests, sending them uncompressed.");
+            synchronized (uncompressedUrls) {
+                uncompressedUrls.add(url.toString());
+            }
+            if (!content.isRepeatable()) {
+                throw new IOException(url + " does not accept compressed requests");
+            }
+            content.setCompressed(false);
+        }
+        return transport.post(url, headers, content);
+    }
 
-        final ClientConnectionManager clientConnectionManager = new ThreadSafeClientConnManager(httpParams, registry);
-        final DefaultHttpClient httpClient = new DefaultHttpClient(clientConnectionManager, httpParams);
+    private static boolean isCompressionRefused(URL url) {
+        synchronized (uncompressedUrls) {
+            return uncompressedUrls.contains(url.toString());
+        }
+    }
 
-        final HttpRequestRetryHandler retryHandler = new SocketTimeOutRetryHandler(httpParams, maxNrRetries);
-        httpClient.setHttpRequestRetryHandler(retryHandler);
+    /**
+     * @return HttpTransport executing the requests with the settings of this HttpRequest.
+     */
+    private HttpTransport getTransport() {
+        switch (transportType) {
+        case HTTP_URL_CONNECTION:
+            return new UrlConnectionHttpTransport(connectionTimeOut, socketTimeOut, maxNrRetries);
+        default:
+            return new ApacheHttpTransport(connectionTimeOut, socketTimeOut, maxNrRetries);
+        }
+    }
 
-        return httpClient;
+    /**
+     * Closes the connections kept alive for the next requests. Called once a
+     * pass sending reports has ended, as the next one may not come before
+     * long.
+     */
+    public static void closeIdleConnections() {
+        // HttpURLConnection pools its connections with the platform, which closes them when idle.
+        ApacheHttpTransport.closeIdleConnections();
     }
 
     /**
@@ -192,45 +328,34 @@ public final class HttpRequest {
         return null;
     }
 
-    private HttpPost getHttpPost(URL url, Map<?,?> parameters) throws UnsupportedEncodingException {
-
-        final HttpPost httpPost = new HttpPost(url.toString());
+    /**
+     * @return Headers of a post, other than those describing its content.
+     */
+    private Map<String, String> getHeaders() {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
 
         final UsernamePasswordCredentials creds = getCredentials();
         if (creds != null) {
-            httpPost.addHeader(BasicScheme.authenticate(creds, "UTF-8", false));
+            final Header authorization = BasicScheme.authenticate(creds, "UTF-8", false);
+            headers.put(authorization.getName(), authorization.getValue());
         }
-        httpPost.setHeader("User-Agent", "Android");
-        httpPost.setHeader("Accept", "text/html,application/xml,application/xhtml+xml,text/html;q=0.9,text/plain;q=0.8,image/png,*/*;q=0.5");
-        httpPost.setHeader("Content-Type", "application/x-www-form-urlencoded");
-
-        final String paramsAsString = getParamsAsString(parameters);
-        httpPost.setEntity(new StringEntity(paramsAsString, "UTF-8"));
+        headers.put("User-Agent", "Android");
+        headers.put("Accept", "text/html,application/xml,application/xhtml+xml,text/html;q=0.9,text/plain;q=0.8,image/png,*/*;q=0.5");
 
-        return httpPost;
+        return headers;
     }
 
     /**
-     * Converts a Map of parameters into a URL encoded Sting.
+     * Encodes a Map of parameters into a request body held in memory, for
+     * the requests which post it in parts.
      *
      * @param parameters    Map of parameters to convert.
-     * @return URL encoded String representing the parameters.
-     * @throws UnsupportedEncodingException if one of the parameters couldn't be converted to UTF-8.
-     */
-    private String getParamsAsString(Map<?,?> parameters) throws UnsupportedEncodingException {
-
-		final StringBuilder dataBfr = new StringBuilder();
-		for (final Object key : parameters.keySet()) {
-			if (dataBfr.length() != 0) {
-				dataBfr.append('&');
-			}
-			final Object preliminaryValue = parameters.get(key);
-            final Object value = (preliminaryValue == null) ? "" : preliminaryValue;
-			dataBfr.append(URLEncoder.encode(key.toString(), "UTF-8"));
-            dataBfr.append('=');
-            dataBfr.append(URLEncoder.encode(value.toString(), "UTF-8"));
-		}
-
-        return dataBfr.toString();
-    }
-}
\ No newline at end of file
+     * @return The request body representing the parameters.
+     * @throws IOException if one of the parameters couldn't be encoded.
+     */
+    private byte[] encode(Map<?,?> parameters) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+        encoder.encode(parameters, body);
+        return body.toByteArray();
+    }
+}
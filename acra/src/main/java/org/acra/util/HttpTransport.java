@@ -0,0 +1,64 @@
+package org.acra.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Responsible for executing the posts of an {@link HttpRequest} with an HTTP client library.
+ * <p>
+ * A transport is created for each request with its timeouts and retries. It retries a post whose response timed out,
+ * and always reads the response completely so that the connection can be reused.
+ * </p>
+ */
+interface HttpTransport {
+
+    /**
+     * Posts a body to a URL.
+     *
+     * @param url       URL to which to post.
+     * @param headers   Headers of the post, other than those describing the body.
+     * @param body      Body of the post, written as many times as the post is attempted.
+     * @return The response of the server, whatever its status.
+     * @throws IOException if no response could be received.
+     */
+    Response post(URL url, Map<String, String> headers, EncodedEntity body) throws IOException;
+
+    /**
+     * Responsible for holding a response read completely.
+     */
+    static final class Response {
+
+        private final int statusCode;
+        private final Map<String, String> headers;
+        private final String content;
+
+        /**
+         * @param statusCode    HTTP status code of the response.
+         * @param headers       Headers of the response, keyed by lower case name.
+         * @param content       Content of the response, empty if there was none.
+         */
+        Response(int statusCode, Map<String, String> headers, String content) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.content = content;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @param name  Name of a header, in any case.
+         * @return The value of the first header with this name, or null if there is none.
+         */
+        String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ENGLISH));
+        }
+
+        String getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2012 Kevin Gaudin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.acra.util;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Responsible for exposing a fixed number of bytes of an underlying InputStream.
+ * <p>
+ * Reading stops at the limit even if the underlying stream holds more data, and closing this stream does not close
+ * the underlying one. This allows reading one length-prefixed value of a larger stream with a standard Reader.
+ * </p>
+ */
+public final class LimitedInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    /**
+     * @param in        InputStream to read from.
+     * @param limit     Maximum number of bytes that can be read through this stream.
+     */
+    public LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.remaining = limit;
+    }
+
+    /**
+     * @return Number of bytes which have not been read yet.
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int result = in.read();
+        if (result != -1) {
+            remaining--;
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int result = in.read(buffer, offset, (int) Math.min(count, remaining));
+        if (result > 0) {
+            remaining -= result;
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        final long result = in.skip(Math.min(count, remaining));
+        remaining -= result;
+        return result;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    /**
+     * Skips all the bytes which have not been read yet.
+     *
+     * @throws IOException if the underlying stream ends before the limit.
+     */
+    public void skipRemaining() throws IOException {
+        while (remaining > 0) {
+            if (skip(remaining) <= 0) {
+                if (read() == -1) {
+                    throw new EOFException("Stream ended " + remaining + " bytes before its limit");
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Does not close the underlying stream.
+     */
+    @Override
+    public void close() {
+        // The underlying stream is owned by the caller.
+    }
+}
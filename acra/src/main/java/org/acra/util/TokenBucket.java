@@ -0,0 +1,101 @@
+package org.acra.util;
+
+/**
+ * Responsible for limiting the rate at which something is consumed.
+ * <p>
+ * The bucket holds up to a capacity of tokens and is refilled at a constant rate. Consuming an amount larger than the
+ * capacity is allowed once the bucket is full, leaving the bucket in debt until it has been refilled. The state of the
+ * bucket is exposed so that it can be persisted and restored.
+ * </p>
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerMillisecond;
+
+    private double tokens;
+    private long lastRefillTime;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity      Maximum number of tokens the bucket can hold.
+     * @param tokensPerMinute   Number of tokens added to the bucket each minute.
+     * @param now           Current time in milliseconds.
+     */
+    public TokenBucket(double capacity, double tokensPerMinute, long now) {
+        this(capacity, tokensPerMinute, capacity, now);
+    }
+
+    /**
+     * Restores a bucket.
+     *
+     * @param capacity      Maximum number of tokens the bucket can hold.
+     * @param tokensPerMinute   Number of tokens added to the bucket each minute.
+     * @param tokens        Number of tokens in the bucket at the last refill time. May be negative.
+     * @param lastRefillTime    Last time in milliseconds the bucket has been refilled.
+     */
+    public TokenBucket(double capacity, double tokensPerMinute, double tokens, long lastRefillTime) {
+        this.capacity = capacity;
+        this.tokensPerMillisecond = tokensPerMinute / 60000;
+        this.tokens = Math.min(tokens, capacity);
+        this.lastRefillTime = lastRefillTime;
+    }
+
+    /**
+     * Consumes tokens if enough of them are available.
+     *
+     * @param amount    Number of tokens to consume.
+     * @param now       Current time in milliseconds.
+     * @return true if the tokens have been consumed, false if not enough tokens are available yet.
+     */
+    public synchronized boolean tryConsume(double amount, long now) {
+        refill(now);
+        if (tokens < Math.min(amount, capacity)) {
+            return false;
+        }
+        tokens -= amount;
+        return true;
+    }
+
+    /**
+     * @param amount    Number of tokens to consume.
+     * @param now       Current time in milliseconds.
+     * @return The time in milliseconds at which {@link #tryConsume(double, long)} will succeed for this amount.
+     */
+    public synchronized long getAvailableTime(double amount, long now) {
+        refill(now);
+        final double missing = Math.min(amount, capacity) - tokens;
+        if (missing <= 0) {
+            return now;
+        }
+        if (tokensPerMillisecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return now + (long) Math.ceil(missing / tokensPerMillisecond);
+    }
+
+    /**
+     * @return Number of tokens in the bucket at the last refill time.
+     */
+    public synchronized double getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return Last time in milliseconds the bucket has been refilled.
+     */
+    public synchronized long getLastRefillTime() {
+        return lastRefillTime;
+    }
+
+    private void refill(long now) {
+        if (now < lastRefillTime) {
+            // The clock has been set back, don't keep the bucket empty until it catches up.
+            lastRefillTime = now;
+            return;
+        }
+        tokens = Math.min(capacity, tokens + (now - lastRefillTime) * tokensPerMillisecond);
+        lastRefillTime = now;
+    }
+}
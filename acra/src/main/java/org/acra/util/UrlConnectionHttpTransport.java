@@ -0,0 +1,158 @@
+package org.acra.util;
+
+import org.acra.ACRA;
+import org.acra.ACRAConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Responsible for executing posts with {@link HttpURLConnection}.
+ * <p>
+ * Connections are pooled and kept alive by the platform, which also handles compressed responses. HTTPS certificates
+ * are verified by the platform.
+ * </p>
+ */
+final class UrlConnectionHttpTransport implements HttpTransport {
+
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+
+    private final int connectionTimeOut;
+    private final int socketTimeOut;
+    private final int maxNrRetries;
+
+    /**
+     * @param connectionTimeOut Time in milliseconds to wait for a connection.
+     * @param socketTimeOut     Time in milliseconds to wait for data.
+     * @param maxNrRetries      Max number of times to retry a post on failure due to SocketTimeOutException.
+     */
+    UrlConnectionHttpTransport(int connectionTimeOut, int socketTimeOut, int maxNrRetries) {
+        this.connectionTimeOut = connectionTimeOut;
+        this.socketTimeOut = socketTimeOut;
+        this.maxNrRetries = maxNrRetries;
+    }
+
+    @Override
+    public Response post(URL url, Map<String, String> headers, EncodedEntity body) throws IOException {
+        int readTimeOut = socketTimeOut;
+        for (int executionCount = 1;; executionCount++) {
+            try {
+                return post(url, headers, body, readTimeOut);
+            } catch (SocketTimeoutException e) {
+                if (!body.isRepeatable()) {
+                    throw e;
+                }
+                if (executionCount > maxNrRetries) {
+                    HttpRequest.getLog().d(ACRA.LOG_TAG, "SocketTimeOut but exceeded max number of retries : " + maxNrRetries);
+                    throw e;
+                }
+                readTimeOut *= 2;
+                HttpRequest.getLog().d(ACRA.LOG_TAG, "SocketTimeOut - increasing time out to " + readTimeOut + " millis and trying again");
+            }
+        }
+    }
+
+    private Response post(URL url, Map<String, String> headers, EncodedEntity body, int readTimeOut) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(connectionTimeOut);
+            connection.setReadTimeout(readTimeOut);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setUseCaches(false);
+            connection.setInstanceFollowRedirects(false);
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (body.getContentType() != null) {
+                connection.setRequestProperty("Content-Type", body.getContentType().getValue());
+            }
+            if (body.getContentEncoding() != null) {
+                connection.setRequestProperty("Content-Encoding", body.getContentEncoding().getValue());
+            }
+
+            // Stream the body instead of letting the connection buffer it to count its length.
+            final long length = body.getContentLength();
+            if (length >= 0 && length <= Integer.MAX_VALUE) {
+                connection.setFixedLengthStreamingMode((int) length);
+            } else {
+                connection.setChunkedStreamingMode(ACRAConstants.DEFAULT_BUFFER_SIZE_IN_BYTES);
+            }
+            final OutputStream out = connection.getOutputStream();
+            try {
+                body.writeTo(out);
+            } finally {
+                out.close();
+            }
+
+            final int statusCode = connection.getResponseCode();
+            final Map<String, String> responseHeaders = new HashMap<String, String>();
+            for (int i = 0;; i++) {
+                final String value = connection.getHeaderField(i);
+                if (value == null) {
+                    break;
+                }
+                final String name = connection.getHeaderFieldKey(i);
+                if (name != null && !responseHeaders.containsKey(name.toLowerCase(Locale.ENGLISH))) {
+                    responseHeaders.put(name.toLowerCase(Locale.ENGLISH), value);
+                }
+            }
+            final InputStream in = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            final String content = in == null ? "" : read(in, getCharset(connection.getContentType()));
+            return new Response(statusCode, responseHeaders, content);
+        } catch (IOException e) {
+            // The connection can't be reused, don't keep it in the pool.
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a response completely, so that its connection can be reused.
+     */
+    private static String read(InputStream in, String charset) throws IOException {
+        try {
+            final Reader reader = new InputStreamReader(in, charset);
+            final StringBuilder content = new StringBuilder();
+            final char[] buffer = new char[1024];
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                content.append(buffer, 0, count);
+            }
+            return content.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return The charset of a Content-Type, or ISO-8859-1 as for HTTP text if it has none or it is not supported.
+     */
+    private static String getCharset(String contentType) {
+        if (contentType != null) {
+            for (final String parameter : contentType.split(";")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.toLowerCase(Locale.ENGLISH).startsWith("charset=")) {
+                    final String charset = trimmed.substring("charset=".length()).replace("\"", "");
+                    try {
+                        return Charset.isSupported(charset) ? charset : DEFAULT_CHARSET;
+                    } catch (IllegalCharsetNameException e) {
+                        return DEFAULT_CHARSET;
+                    }
+                }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
+}
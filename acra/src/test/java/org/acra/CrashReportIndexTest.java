@@ -0,0 +1,139 @@
+package org.acra;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.acra.log.NonAndroidLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Responsible for testing the reconciliation of CrashReportIndex with the report files and the writing of the
+ * index file.
+ */
+public class CrashReportIndexTest {
+
+    private File dir;
+    private NonAndroidLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("reports", "");
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(dir.mkdir());
+        log = new NonAndroidLog();
+        log.setLogLevel(NonAndroidLog.WARN);
+    }
+
+    /**
+     * @return An index read again from the index file.
+     */
+    private CrashReportIndex openIndex() {
+        return new CrashReportIndex(dir, false, log);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private String createReportFile(String fileName, int size) throws Exception {
+        final FileOutputStream out = new FileOutputStream(new File(dir, fileName));
+        try {
+            out.write(new byte[size]);
+        } finally {
+            out.close();
+        }
+        return fileName;
+    }
+
+    @Test
+    public void testUnindexedReportsAreIndexed() throws Exception {
+        final Map<String, CrashReportIndex.Entry> entries = new TreeMap<String, CrashReportIndex.Entry>();
+        final String report = createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 12);
+        final String silentReport = createReportFile("2000" + ACRAConstants.SILENT_SUFFIX
+                + ACRAConstants.REPORTFILE_EXTENSION, 34);
+
+        Assert.assertTrue(CrashReportIndex.reconcile(entries, dir, new String[] { report, silentReport }));
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(12, entries.get(report).getSize());
+        Assert.assertFalse(entries.get(report).isSilent());
+        Assert.assertEquals(34, entries.get(silentReport).getSize());
+        Assert.assertTrue(entries.get(silentReport).isSilent());
+    }
+
+    @Test
+    public void testIndexedReportsAreKeptAndMissingReportsAreRemoved() throws Exception {
+        final Map<String, CrashReportIndex.Entry> entries = new TreeMap<String, CrashReportIndex.Entry>();
+        final String deletedReport = createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 1);
+        final String keptReport = createReportFile("2000" + ACRAConstants.REPORTFILE_EXTENSION, 2);
+        CrashReportIndex.reconcile(entries, dir, new String[] { deletedReport, keptReport });
+        final CrashReportIndex.Entry keptEntry = entries.get(keptReport);
+
+        Assert.assertTrue(new File(dir, deletedReport).delete());
+        final String newReport = createReportFile("3000" + ACRAConstants.REPORTFILE_EXTENSION, 3);
+        Assert.assertTrue(CrashReportIndex.reconcile(entries, dir, new String[] { keptReport, newReport }));
+
+        Assert.assertEquals(2, entries.size());
+        Assert.assertNull(entries.get(deletedReport));
+        Assert.assertSame(keptEntry, entries.get(keptReport));
+        Assert.assertEquals(3, entries.get(newReport).getSize());
+    }
+
+    @Test
+    public void testIndexMatchingReportsIsUnchanged() throws Exception {
+        final Map<String, CrashReportIndex.Entry> entries = new TreeMap<String, CrashReportIndex.Entry>();
+        final String[] reports = { createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 1) };
+        CrashReportIndex.reconcile(entries, dir, reports);
+
+        Assert.assertFalse(CrashReportIndex.reconcile(entries, dir, reports));
+    }
+
+    @Test
+    public void testIndexIsBuiltFromTheGivenReportFiles() throws Exception {
+        final String report = createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 1);
+        createReportFile("2000" + ACRAConstants.REPORTFILE_EXTENSION, 2);
+
+        openIndex().reconcile(new String[] { report });
+
+        Assert.assertArrayEquals(new String[] { report }, openIndex().getReportFileNames());
+    }
+
+    @Test
+    public void testUpdatesAreWrittenOnceEnded() throws Exception {
+        final String failedReport = createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 1);
+        final String sentReport = createReportFile("2000" + ACRAConstants.REPORTFILE_EXTENSION, 2);
+        final CrashReportIndex index = openIndex();
+        index.reconcile(new String[] { failedReport, sentReport });
+
+        index.beginUpdates();
+        index.recordFailedAttempt(failedReport, 0);
+        index.remove(sentReport);
+        Assert.assertEquals(0, openIndex().get(failedReport).getAttempts());
+        Assert.assertNotNull(openIndex().get(sentReport));
+
+        index.endUpdates();
+        Assert.assertEquals(1, openIndex().get(failedReport).getAttempts());
+        Assert.assertNull(openIndex().get(sentReport));
+    }
+
+    @Test
+    public void testNewReportsAreWrittenDuringUpdates() throws Exception {
+        final CrashReportIndex index = openIndex();
+        index.reconcile(new String[0]);
+        index.beginUpdates();
+
+        final String report = createReportFile("1000" + ACRAConstants.REPORTFILE_EXTENSION, 1);
+        index.put(report, 1, 0, null);
+
+        Assert.assertNotNull(openIndex().get(report));
+        index.endUpdates();
+    }
+}
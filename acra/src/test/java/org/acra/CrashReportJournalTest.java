@@ -0,0 +1,165 @@
+package org.acra;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.acra.collector.CrashReportData;
+import org.acra.log.NonAndroidLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Responsible for testing CrashReportJournal appending, reading and recovering silent reports.
+ */
+public class CrashReportJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File dir;
+    private CrashReportJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("journal", "");
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(dir.mkdir());
+        journal = newJournal();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private CrashReportJournal newJournal() {
+        final NonAndroidLog log = new NonAndroidLog();
+        log.setLogLevel(NonAndroidLog.ERROR);
+        return new CrashReportJournal(dir, new CrashReportPersister(null), log);
+    }
+
+    private static CrashReportData newReport(int id) {
+        final CrashReportData crashData = new CrashReportData();
+        crashData.put(ReportField.REPORT_ID, Integer.toString(id));
+        crashData.put(ReportField.STACK_TRACE, "java.lang.IllegalStateException: " + id);
+        return crashData;
+    }
+
+    private void append(int id) throws Exception {
+        journal.append(newReport(id), SEGMENT_SIZE, 100, false);
+    }
+
+    /**
+     * @return The id of the next record, which is consumed, or null if the journal is empty.
+     */
+    private String next() {
+        final CrashReportJournal.Record record = journal.peek();
+        if (record == null) {
+            return null;
+        }
+        journal.skip(record);
+        return record.getCrashData().get(ReportField.REPORT_ID);
+    }
+
+    private File getSegment(int sequence) {
+        return new File(dir, "ACRA-JOURNAL-" + sequence + ".journal");
+    }
+
+    @Test
+    public void testRecordsAreReadInOrder() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            append(i);
+        }
+        Assert.assertTrue("Expected several segments", getSegment(1).exists());
+
+        final CrashReportJournal.Record first = journal.peek();
+        Assert.assertEquals(newReport(0), first.getCrashData());
+        Assert.assertEquals("0", journal.peek().getCrashData().get(ReportField.REPORT_ID));
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(Integer.toString(i), next());
+        }
+        Assert.assertNull(next());
+        Assert.assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void testOldestSegmentsAreDropped() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            journal.append(newReport(i), SEGMENT_SIZE, 2, false);
+        }
+        Assert.assertEquals(2, dir.listFiles().length);
+
+        final int first = Integer.parseInt(next());
+        Assert.assertTrue(first > 0);
+        for (int i = first + 1; i < 200; i++) {
+            Assert.assertEquals(Integer.toString(i), next());
+        }
+        Assert.assertNull(next());
+    }
+
+    @Test
+    public void testCorruptedRecordIsSkipped() throws Exception {
+        append(0);
+        append(1);
+        append(2);
+
+        // Garble the content of the second record, keeping its length.
+        final RandomAccessFile segment = new RandomAccessFile(getSegment(0), "rw");
+        try {
+            segment.seek(12);
+            final int length = segment.readInt();
+            segment.seek(12 + 4 + length + 4);
+            segment.write(new byte[] { 'G', 'A', 'R', 'B', 'L', 'E', 'D' });
+        } finally {
+            segment.close();
+        }
+
+        Assert.assertEquals("0", next());
+        Assert.assertEquals("2", next());
+        Assert.assertNull(next());
+    }
+
+    @Test
+    public void testSegmentIsCutAtACorruptedLength() throws Exception {
+        append(0);
+        append(1);
+        append(2);
+
+        final RandomAccessFile segment = new RandomAccessFile(getSegment(0), "rw");
+        final long length;
+        try {
+            segment.seek(12);
+            length = segment.readInt();
+            segment.seek(12 + 4 + length);
+            segment.writeInt(Integer.MAX_VALUE);
+        } finally {
+            segment.close();
+        }
+
+        Assert.assertEquals("0", next());
+        Assert.assertNull(next());
+    }
+
+    @Test
+    public void testPartialRecordIsDroppedBeforeAppending() throws Exception {
+        append(0);
+        append(1);
+        final RandomAccessFile segment = new RandomAccessFile(getSegment(0), "rw");
+        try {
+            segment.setLength(segment.length() - 3);
+        } finally {
+            segment.close();
+        }
+
+        // As after the process died while appending.
+        journal = newJournal();
+        append(2);
+        Assert.assertEquals("0", next());
+        Assert.assertEquals("2", next());
+        Assert.assertNull(next());
+    }
+}
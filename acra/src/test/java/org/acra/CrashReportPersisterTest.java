@@ -0,0 +1,230 @@
+package org.acra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Responsible for testing CrashReportPersister stream encoding and decoding.
+ */
+public class CrashReportPersisterTest {
+
+    private CrashReportPersister persister;
+    private CrashReportData crashData;
+    private File reportFile;
+
+    @Before
+    public void setUp() throws Exception {
+        persister = new CrashReportPersister(null);
+
+        crashData = new CrashReportData();
+        crashData.put(ReportField.REPORT_ID, "8d3d6b2e-3a8f-4f7e-a3a5-7e3c1b0e4b61");
+        crashData.put(ReportField.STACK_TRACE, "java.lang.RuntimeException: boom = bang\n\tat Foo.bar(Foo.java:12)\n");
+        crashData.put(ReportField.LOGCAT, " leading space, \\backslash, #hash, !bang, unicode é中😀");
+        crashData.put(ReportField.USER_COMMENT, "");
+
+        reportFile = File.createTempFile("report", ACRAConstants.REPORTFILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() {
+        reportFile.delete();
+    }
+
+    private void storeReportFile(ReportFileFormat format, boolean compress) throws Exception {
+        final FileOutputStream out = new FileOutputStream(reportFile);
+        try {
+            persister.store(crashData, out, format, compress);
+        } finally {
+            out.close();
+        }
+    }
+
+    private CrashReportData loadReportFile() throws Exception {
+        final InputStream in = new FileInputStream(reportFile);
+        try {
+            return persister.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a report field by field, checking that each field is read once.
+     */
+    private CrashReportData readReportFile() throws Exception {
+        final CrashReportData read = new CrashReportData();
+        final CrashReportReader reader = persister.openReader(reportFile);
+        try {
+            while (reader.next()) {
+                Assert.assertFalse("Field read twice : " + reader.getField(), read.containsKey(reader.getField()));
+                final Reader value = reader.getValue();
+                if (value == null) {
+                    read.put(reader.getField(), null);
+                    continue;
+                }
+                final StringBuilder content = new StringBuilder();
+                final char[] buffer = new char[7];
+                int count;
+                while ((count = value.read(buffer)) != -1) {
+                    content.append(buffer, 0, count);
+                }
+                read.put(reader.getField(), content.toString());
+            }
+        } finally {
+            reader.close();
+        }
+        return read;
+    }
+
+    @Test
+    public void testBinaryFormatRoundTrip() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        persister.store(crashData, out, ReportFileFormat.BINARY, false);
+
+        final CrashReportData loaded = persister.load(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(crashData, loaded);
+    }
+
+    @Test
+    public void testTextFormatIsStillReadable() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        persister.store(crashData, out, ReportFileFormat.TEXT, false);
+
+        final CrashReportData loaded = persister.load(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(crashData, loaded);
+    }
+
+    @Test
+    public void testCompressedReportsAreDetected() throws Exception {
+        for (ReportFileFormat format : ReportFileFormat.values()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            persister.store(crashData, out, format, true);
+
+            final CrashReportData loaded = persister.load(new ByteArrayInputStream(out.toByteArray()));
+            Assert.assertEquals(crashData, loaded);
+        }
+    }
+
+    @Test
+    public void testStreamedRoundTrip() throws Exception {
+        for (ReportFileFormat format : ReportFileFormat.values()) {
+            for (boolean compress : new boolean[] { false, true }) {
+                storeReportFile(format, compress);
+                Assert.assertEquals(format + ", compressed " + compress, crashData, readReportFile());
+            }
+        }
+    }
+
+    @Test
+    public void testStreamedValuesCanBeSkipped() throws Exception {
+        storeReportFile(ReportFileFormat.BINARY, false);
+
+        final CrashReportReader reader = persister.openReader(reportFile);
+        try {
+            // Only the first char of each value is read.
+            while (reader.next()) {
+                final String value = crashData.get(reader.getField());
+                Assert.assertEquals(value.length() == 0 ? -1 : value.charAt(0), reader.getValue().read());
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Overwrites the value length of the first record of a binary report.
+     */
+    private void corruptFirstRecordLength(int length) throws Exception {
+        final RandomAccessFile file = new RandomAccessFile(reportFile, "rw");
+        try {
+            // Magic, version, then the field ordinal.
+            file.seek(4 + 1 + 2);
+            file.writeInt(length);
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void testCorruptedRecordLengthsAreRejected() throws Exception {
+        for (final int length : new int[] { -2, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 20 }) {
+            storeReportFile(ReportFileFormat.BINARY, false);
+            corruptFirstRecordLength(length);
+            try {
+                readReportFile();
+                Assert.fail("Length " + length + " was read");
+            } catch (IOException e) {
+                // Expected.
+            }
+            try {
+                loadReportFile();
+                Assert.fail("Length " + length + " was loaded");
+            } catch (IOException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testAppendedFieldsOverrideStoredFields() throws Exception {
+        final CrashReportData fields = new CrashReportData();
+        fields.put(ReportField.USER_COMMENT, "It crashed when I rotated the screen");
+        fields.put(ReportField.USER_EMAIL, "user@example.com");
+        final CrashReportData expected = new CrashReportData();
+        expected.putAll(crashData);
+        expected.putAll(fields);
+
+        for (ReportFileFormat format : ReportFileFormat.values()) {
+            storeReportFile(format, false);
+            Assert.assertTrue(persister.append(fields, reportFile, false));
+            Assert.assertFalse(new File(reportFile.getPath() + ACRAConstants.PARTIAL_REPORTFILE_SUFFIX).exists());
+
+            Assert.assertEquals(format.toString(), expected, loadReportFile());
+            Assert.assertEquals(format.toString(), expected, readReportFile());
+        }
+    }
+
+    @Test
+    public void testLastAppendedFieldsWin() throws Exception {
+        final CrashReportData first = new CrashReportData();
+        first.put(ReportField.USER_COMMENT, "first");
+        final CrashReportData second = new CrashReportData();
+        second.put(ReportField.USER_COMMENT, "second");
+
+        for (ReportFileFormat format : ReportFileFormat.values()) {
+            storeReportFile(format, false);
+            persister.append(first, reportFile, false);
+            persister.append(second, reportFile, false);
+
+            Assert.assertEquals(format.toString(), "second", loadReportFile().get(ReportField.USER_COMMENT));
+            Assert.assertEquals(format.toString(), "second", readReportFile().get(ReportField.USER_COMMENT));
+        }
+    }
+
+    @Test
+    public void testCompressedReportsAreNotAppendedTo() throws Exception {
+        final CrashReportData fields = new CrashReportData();
+        fields.put(ReportField.USER_COMMENT, "comment");
+
+        for (ReportFileFormat format : ReportFileFormat.values()) {
+            storeReportFile(format, true);
+            final long length = reportFile.length();
+            Assert.assertFalse(persister.append(fields, reportFile, false));
+            Assert.assertEquals(length, reportFile.length());
+        }
+    }
+}
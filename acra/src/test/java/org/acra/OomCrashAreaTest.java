@@ -0,0 +1,88 @@
+package org.acra;
+
+import java.io.File;
+
+import org.acra.collector.CrashReportData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Responsible for testing OomCrashArea writing crashes and reading them back.
+ */
+public class OomCrashAreaTest {
+
+    private File areaFile;
+    private CrashReportData processFields;
+
+    @Before
+    public void setUp() throws Exception {
+        areaFile = File.createTempFile("oom", "");
+        processFields = new CrashReportData();
+        processFields.put(ReportField.APP_VERSION_CODE, "42");
+        processFields.put(ReportField.PACKAGE_NAME, "com.example.app");
+        processFields.put(ReportField.BRAND, null);
+    }
+
+    @After
+    public void tearDown() {
+        areaFile.delete();
+    }
+
+    private static Throwable newCrash() {
+        final OutOfMemoryError crash = new OutOfMemoryError("boom");
+        crash.initCause(new IllegalStateException("cause"));
+        return crash;
+    }
+
+    @Test
+    public void testCrashIsReadBack() throws Exception {
+        final OomCrashArea area = OomCrashArea.open(areaFile, 64 * 1024);
+        Assert.assertFalse(area.isWritten());
+        area.setProcessFields(processFields);
+        area.write(newCrash());
+        Assert.assertTrue(area.isWritten());
+
+        // The content is kept by the file, for the next process.
+        final CrashReportData fields = OomCrashArea.open(areaFile, 64 * 1024).getFields();
+        final String stackTrace = fields.get(ReportField.STACK_TRACE);
+        Assert.assertTrue(stackTrace, stackTrace.startsWith("java.lang.OutOfMemoryError: boom\n\tat org.acra."));
+        Assert.assertTrue(stackTrace, stackTrace.contains("\nCaused by: java.lang.IllegalStateException: cause\n"));
+        Assert.assertEquals("42", fields.get(ReportField.APP_VERSION_CODE));
+        Assert.assertEquals("com.example.app", fields.get(ReportField.PACKAGE_NAME));
+        Assert.assertFalse(fields.containsKey(ReportField.BRAND));
+
+        area.clear();
+        Assert.assertFalse(area.isWritten());
+    }
+
+    @Test(timeout = 10000)
+    public void testCyclicCausesAreWrittenOnce() throws Exception {
+        final Exception first = new Exception("first");
+        final Exception second = new Exception("second");
+        first.initCause(second);
+        second.initCause(first);
+
+        final OomCrashArea area = OomCrashArea.open(areaFile, 1024 * 1024);
+        area.write(first);
+        Assert.assertTrue(area.isWritten());
+        final String stackTrace = area.getFields().get(ReportField.STACK_TRACE);
+        Assert.assertTrue(stackTrace, stackTrace.startsWith("java.lang.Exception: first\n"));
+        Assert.assertTrue(stackTrace, stackTrace.contains("Caused by: java.lang.Exception: second\n"));
+        Assert.assertTrue(stackTrace, stackTrace.length() < 64 * 1024);
+    }
+
+    @Test
+    public void testStackTraceEndsWithTheLastFrameWhichFits() throws Exception {
+        final OomCrashArea area = OomCrashArea.open(areaFile, 600);
+        area.setProcessFields(processFields);
+        area.write(newCrash());
+
+        final CrashReportData fields = area.getFields();
+        final String stackTrace = fields.get(ReportField.STACK_TRACE);
+        Assert.assertTrue(stackTrace, stackTrace.startsWith("java.lang.OutOfMemoryError: boom\n"));
+        Assert.assertTrue(stackTrace, stackTrace.endsWith(")\n"));
+        Assert.assertFalse(stackTrace, stackTrace.contains("Caused by"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.acra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing the built-in ReportEvictionPolicy implementations.
+ */
+public class ReportEvictionPolicyTest {
+
+    private static final List<CrashReportIndex.Entry> REPORTS = Arrays.asList(newEntry("1", false, "a"),
+            newEntry("2", true, "b"), newEntry("3", false, "b"), newEntry("4", true, null));
+
+    private static CrashReportIndex.Entry newEntry(String fileName, boolean silent, String fingerprint) {
+        return new CrashReportIndex.Entry(fileName, 0, silent, false, 0, 0, fingerprint, 1, 0, 0, false, false);
+    }
+
+    private static List<String> getFileNames(List<CrashReportIndex.Entry> entries) {
+        final List<String> fileNames = new ArrayList<String>();
+        for (CrashReportIndex.Entry entry : entries) {
+            fileNames.add(entry.getFileName());
+        }
+        return fileNames;
+    }
+
+    @Test
+    public void testOldestFirstKeepsTheOrder() {
+        Assert.assertEquals(Arrays.asList("1", "2", "3", "4"),
+                getFileNames(new ReportEvictionPolicy.OldestFirst().evictionOrder(REPORTS)));
+    }
+
+    @Test
+    public void testKeepOnePerFingerprintDeletesOlderDuplicatesFirst() {
+        Assert.assertEquals(Arrays.asList("2", "1", "3", "4"),
+                getFileNames(new ReportEvictionPolicy.KeepOnePerFingerprint().evictionOrder(REPORTS)));
+    }
+
+    @Test
+    public void testDropSilentFirstDeletesSilentReportsFirst() {
+        Assert.assertEquals(Arrays.asList("2", "4", "1", "3"),
+                getFileNames(new ReportEvictionPolicy.DropSilentFirst().evictionOrder(REPORTS)));
+    }
+
+    @Test
+    public void testCustomPolicyCanBeImplemented() {
+        final ReportEvictionPolicy newestFirst = new ReportEvictionPolicy() {
+            @Override
+            public <T extends PendingReport> List<T> evictionOrder(List<T> reports) {
+                final List<T> order = new ArrayList<T>();
+                for (T report : reports) {
+                    order.add(0, report);
+                }
+                return order;
+            }
+        };
+        Assert.assertEquals(Arrays.asList("4", "3", "2", "1"), getFileNames(newestFirst.evictionOrder(REPORTS)));
+    }
+}
@@ -0,0 +1,41 @@
+package org.acra;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+
+/**
+ * Responsible for storing and opening report files in the tests of other packages.
+ */
+public final class ReportFiles {
+
+    private ReportFiles() {
+    }
+
+    /**
+     * @param crashData     Report to store.
+     * @param reportFile    File to store it to.
+     * @param format        Format of the report file.
+     * @param compress      true to compress the report file.
+     */
+    public static void store(CrashReportData crashData, File reportFile, ReportFileFormat format, boolean compress)
+            throws IOException {
+        final FileOutputStream out = new FileOutputStream(reportFile);
+        try {
+            new CrashReportPersister(null).store(crashData, out, format, compress);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param reportFile    Report file to read.
+     * @return A reader over the report fields, as given to a StreamingReportSender.
+     */
+    public static CrashReportReader openReader(File reportFile) throws IOException {
+        return new CrashReportPersister(null).openReader(reportFile);
+    }
+}
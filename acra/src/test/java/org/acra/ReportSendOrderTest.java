@@ -0,0 +1,61 @@
+package org.acra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing the ReportSendOrder values.
+ */
+public class ReportSendOrderTest {
+
+    private static final int CURRENT_VERSION = 7;
+
+    /**
+     * Pending reports, oldest first.
+     */
+    private static final List<CrashReportIndex.Entry> REPORTS = Arrays.asList(
+            newEntry("old-silent", 1000, true, CURRENT_VERSION, 10),
+            newEntry("old-crash", 1000, false, CURRENT_VERSION, 10),
+            newEntry("previous-version", 2000, false, CURRENT_VERSION - 1, 10),
+            newEntry("large", 3000, false, CURRENT_VERSION, 20),
+            newEntry("small", 3000, false, CURRENT_VERSION, 5),
+            newEntry("new-silent", 4000, true, CURRENT_VERSION, 10));
+
+    private static CrashReportIndex.Entry newEntry(String fileName, long timestamp, boolean silent, int versionCode,
+            long size) {
+        return new CrashReportIndex.Entry(fileName, timestamp, silent, false, size, 0, null, 1, 0, versionCode,
+                false, false);
+    }
+
+    private static List<String> getFileNames(List<CrashReportIndex.Entry> entries) {
+        final List<String> fileNames = new ArrayList<String>();
+        for (CrashReportIndex.Entry entry : entries) {
+            fileNames.add(entry.getFileName());
+        }
+        return fileNames;
+    }
+
+    @Test
+    public void testOldestFirstKeepsTheOrder() {
+        Assert.assertEquals(getFileNames(REPORTS),
+                getFileNames(ReportSendOrder.OLDEST_FIRST.sendOrder(REPORTS, CURRENT_VERSION)));
+    }
+
+    @Test
+    public void testPrioritySendsCrashesOfTheCurrentVersionFirst() {
+        Assert.assertEquals(
+                Arrays.asList("small", "large", "old-crash", "previous-version", "new-silent", "old-silent"),
+                getFileNames(ReportSendOrder.PRIORITY.sendOrder(REPORTS, CURRENT_VERSION)));
+    }
+
+    @Test
+    public void testPriorityDoesNotChangeTheGivenList() {
+        final List<CrashReportIndex.Entry> reports = new ArrayList<CrashReportIndex.Entry>(REPORTS);
+        ReportSendOrder.PRIORITY.sendOrder(reports, CURRENT_VERSION);
+        Assert.assertEquals(REPORTS, reports);
+    }
+}
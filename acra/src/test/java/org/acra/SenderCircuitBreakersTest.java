@@ -0,0 +1,52 @@
+package org.acra;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.acra.collector.CrashReportData;
+import org.acra.sender.HttpPostSender;
+import org.acra.sender.ReportSender;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing the names of the SenderCircuitBreakers breakers.
+ */
+public class SenderCircuitBreakersTest {
+
+    private static final class FixedUrlSender extends HttpPostSender {
+        private final String url;
+
+        FixedUrlSender(String url) {
+            super(null);
+            this.url = url;
+        }
+
+        @Override
+        protected URL getReportUrl() throws MalformedURLException {
+            return new URL(url);
+        }
+    }
+
+    private static final class PlainSender implements ReportSender {
+        @Override
+        public void send(CrashReportData errorContent) {
+        }
+    }
+
+    @Test
+    public void testSendersToDifferentUrlsHaveDifferentBreakers() {
+        final String first = SenderCircuitBreakers.getKey(new FixedUrlSender("http://reports.example.com/a"));
+        final String second = SenderCircuitBreakers.getKey(new FixedUrlSender("http://reports.example.com/b"));
+
+        Assert.assertFalse(first.equals(second));
+        Assert.assertEquals(first, SenderCircuitBreakers.getKey(new FixedUrlSender("http://reports.example.com/a")));
+    }
+
+    @Test
+    public void testSendersWithoutDestinationAreNamedByClass() {
+        Assert.assertEquals(PlainSender.class.getName(), SenderCircuitBreakers.getKey(new PlainSender()));
+        Assert.assertEquals(FixedUrlSender.class.getName(),
+                SenderCircuitBreakers.getKey(new FixedUrlSender("not a url")));
+    }
+}
@@ -0,0 +1,120 @@
+package org.acra.sender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+
+import org.acra.ACRAConstants;
+import org.acra.ReportField;
+import org.acra.ReportFileFormat;
+import org.acra.ReportFiles;
+import org.acra.collector.CrashReportData;
+import org.acra.collector.CrashReportReader;
+import org.acra.log.NonAndroidLog;
+import org.acra.util.HttpRequest;
+import org.acra.util.LoopbackHttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Responsible for testing HttpPostSender posting reports as they are read from their file.
+ */
+public class HttpPostSenderTest {
+
+    private static final ReportField[] FIELDS = { ReportField.REPORT_ID, ReportField.LOGCAT };
+
+    private LoopbackHttpServer server;
+    private String body;
+    private CrashReportData crashData;
+    private File reportFile;
+
+    @Before
+    public void setUp() throws Exception {
+        HttpRequest.setLog(new NonAndroidLog());
+        server = new LoopbackHttpServer("HttpPostSenderTest", false) {
+            @Override
+            protected Response handle(Map<String, String> headers, byte[] content) throws IOException {
+                body = new String(content, "UTF-8");
+                return new Response("200 OK", "OK");
+            }
+        };
+
+        crashData = new CrashReportData();
+        crashData.put(ReportField.REPORT_ID, "8d3d6b2e-3a8f-4f7e-a3a5-7e3c1b0e4b61");
+        final StringBuilder logcat = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            logcat.append("01-01 12:00:00.000 D/Component(").append(i * 7919 % 10007).append("): event ").append(i)
+                    .append('\n');
+        }
+        crashData.put(ReportField.LOGCAT, logcat.toString());
+        crashData.put(ReportField.USER_COMMENT, "not posted");
+
+        reportFile = File.createTempFile("report", ACRAConstants.REPORTFILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        reportFile.delete();
+    }
+
+    private HttpPostSender newSender() {
+        return new HttpPostSender(null) {
+            @Override
+            protected URL getReportUrl() throws MalformedURLException {
+                return server.getUrl();
+            }
+
+            @Override
+            protected HttpRequest createHttpRequest() {
+                return new HttpRequest();
+            }
+
+            @Override
+            protected ReportField[] getReportFields() {
+                return FIELDS;
+            }
+        };
+    }
+
+    private void send() throws Exception {
+        final CrashReportReader reader = ReportFiles.openReader(reportFile);
+        try {
+            newSender().send(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReportIsPostedAsItIsRead() throws Exception {
+        ReportFiles.store(crashData, reportFile, ReportFileFormat.BINARY, true);
+        send();
+
+        Assert.assertTrue(body, body.startsWith("REPORT_ID=8d3d6b2e-3a8f-4f7e-a3a5-7e3c1b0e4b61&LOGCAT=01-01+12"));
+        Assert.assertFalse(body, body.contains("USER_COMMENT"));
+    }
+
+    @Test
+    public void testTruncatedReportIsAReadFailure() throws Exception {
+        ReportFiles.store(crashData, reportFile, ReportFileFormat.BINARY, true);
+        final RandomAccessFile file = new RandomAccessFile(reportFile, "rw");
+        try {
+            file.setLength(file.length() / 2);
+        } finally {
+            file.close();
+        }
+
+        try {
+            send();
+            Assert.fail("A truncated report was sent");
+        } catch (ReportReadException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.acra.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing CircuitBreaker.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testBreakerOpensAfterThreshold() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.recordFailure(0);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(0));
+        breaker.recordFailure(10);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState(10));
+        Assert.assertFalse(breaker.allowRequest(1009));
+        Assert.assertEquals(1010, breaker.getResetTime());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.recordFailure(0);
+        breaker.recordSuccess();
+        breaker.recordFailure(0);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(0));
+    }
+
+    @Test
+    public void testHalfOpenTrial() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.recordFailure(0);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(1000));
+        breaker.recordFailure(1000);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState(1500));
+        Assert.assertTrue(breaker.allowRequest(2000));
+        breaker.recordSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(2000));
+    }
+
+    @Test
+    public void testRestoredStateIsKept() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, 1000, 3, 500);
+        Assert.assertFalse(breaker.allowRequest(1000));
+        Assert.assertTrue(breaker.allowRequest(1500));
+    }
+
+    @Test
+    public void testZeroThresholdNeverOpens() {
+        final CircuitBreaker breaker = new CircuitBreaker(0, 1000);
+        breaker.recordFailure(0);
+        Assert.assertTrue(breaker.allowRequest(0));
+    }
+}
@@ -0,0 +1,143 @@
+package org.acra.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.acra.sender.BinaryReportEncoder;
+import org.acra.sender.FormReportEncoder;
+import org.acra.sender.JsonReportEncoder;
+import org.acra.sender.ReportEncoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing EncodedEntity.
+ */
+public class EncodedEntityTest {
+
+    private static Map<String, String> getParameters() {
+        final Map<String, String> params = new LinkedHashMap<String, String>();
+        final StringBuilder trace = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            trace.append("\tat com.example.Foo.bar(Foo.java:").append(i).append(") \u00e9\n");
+        }
+        params.put("STACK_TRACE", trace.toString());
+        params.put("APP_VERSION_NAME", "1.0 beta");
+        return params;
+    }
+
+    private static byte[] write(EncodedEntity entity) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testContentLengthIsTheWrittenLength() throws Exception {
+        final Map<String, String> params = getParameters();
+        final EncodedEntity entity = new EncodedEntity(new FormReportEncoder(), params, true);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new FormReportEncoder().encode(params, expected);
+
+        Assert.assertEquals(expected.size(), entity.getContentLength());
+        Assert.assertArrayEquals(expected.toByteArray(), write(entity));
+        Assert.assertTrue(entity.isRepeatable());
+        Assert.assertArrayEquals(expected.toByteArray(), write(entity));
+    }
+
+    @Test
+    public void testCompressedBodyIsChunkedAndInflatesToTheBody() throws Exception {
+        final EncodedEntity entity = new EncodedEntity(new FormReportEncoder(), getParameters(), true);
+        final byte[] plain = write(entity);
+        entity.setCompressed(true);
+        Assert.assertEquals(-1, entity.getContentLength());
+        Assert.assertEquals("gzip", entity.getContentEncoding().getValue());
+
+        final InputStream in = new GZIPInputStream(new ByteArrayInputStream(write(entity)));
+        final ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            inflated.write(buffer, 0, count);
+        }
+        Assert.assertArrayEquals(plain, inflated.toByteArray());
+    }
+
+    @Test
+    public void testStreamedBodyIsChunkedAndNotRepeatable() throws Exception {
+        final Map<String, Object> params = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, String> param : getParameters().entrySet()) {
+            params.put(param.getKey(), new StringReader(param.getValue()));
+        }
+        final EncodedEntity entity = new EncodedEntity(new FormReportEncoder(), params, false);
+        Assert.assertEquals(-1, entity.getContentLength());
+        Assert.assertFalse(entity.isRepeatable());
+    }
+
+    @Test
+    public void testReaderValuesAreEncodedLikeStrings() throws Exception {
+        for (ReportEncoder encoder : new ReportEncoder[] { new FormReportEncoder(), new JsonReportEncoder(),
+                new BinaryReportEncoder() }) {
+            final Map<String, String> params = getParameters();
+            params.put("USER_COMMENT", "\"quoted\" & \ud83d\ude00");
+            params.put("USER_EMAIL", null);
+            final Map<String, Object> readers = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                readers.put(param.getKey(), param.getValue() == null ? null : new StringReader(param.getValue()));
+            }
+
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            encoder.encode(params, expected);
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            encoder.encode(readers, actual);
+            Assert.assertArrayEquals(encoder.getClass().getName(), expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void testBatchIsEncodedWithTheEncoder() throws Exception {
+        final List<Map<String, String>> batch = new ArrayList<Map<String, String>>();
+        for (int i = 0; i < 2; i++) {
+            final Map<String, String> params = new LinkedHashMap<String, String>();
+            params.put("REPORT_ID", "id" + i);
+            params.put("USER_COMMENT", "a b");
+            batch.add(params);
+        }
+
+        Assert.assertEquals("REPORT_ID%5B0%5D=id0&USER_COMMENT%5B0%5D=a+b&REPORT_ID%5B1%5D=id1&USER_COMMENT%5B1%5D=a+b",
+                new String(write(new EncodedEntity(new FormReportEncoder(), batch)), "UTF-8"));
+        final EncodedEntity entity = new EncodedEntity(new JsonReportEncoder(), batch);
+        final byte[] body = write(entity);
+        Assert.assertEquals("[{\"REPORT_ID\":\"id0\",\"USER_COMMENT\":\"a b\"},"
+                + "{\"REPORT_ID\":\"id1\",\"USER_COMMENT\":\"a b\"}]", new String(body, "UTF-8"));
+        Assert.assertEquals(body.length, entity.getContentLength());
+    }
+
+    @Test
+    public void testBodySentAgainUncompressedHasALength() throws Exception {
+        final EncodedEntity entity = new EncodedEntity(new FormReportEncoder(), getParameters(), true);
+        entity.setCompressed(true);
+        Assert.assertEquals(-1, entity.getContentLength());
+        write(entity);
+
+        entity.setCompressed(false);
+        final byte[] body = write(entity);
+        Assert.assertEquals(body.length, entity.getContentLength());
+        Assert.assertArrayEquals(body, write(entity));
+    }
+
+    @Test
+    public void testRangeOfBytesIsWritten() throws Exception {
+        final byte[] body = "0123456789".getBytes("UTF-8");
+        final EncodedEntity entity = new EncodedEntity("text/plain", body, 3, 4);
+        Assert.assertEquals(4, entity.getContentLength());
+        Assert.assertArrayEquals("3456".getBytes("UTF-8"), write(entity));
+    }
+}
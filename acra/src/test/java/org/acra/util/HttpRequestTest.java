@@ -1,13 +1,17 @@
 package org.acra.util;
 
 
+import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.acra.ACRAConstants;
+import org.acra.HttpTransportType;
 import org.acra.log.NonAndroidLog;
 import org.junit.Assert;
 import org.junit.Before;
@@ -66,4 +70,83 @@ public class HttpRequestTest {
             Assert.fail("Should not get a SocketTimeOut when using SocketTimeOutRetryHandler");
         }
     }
+
+    @Test
+    public void testResumablePostIsSentInChunks() throws Exception {
+        final ResumableUploadServer server = new ResumableUploadServer();
+        try {
+            final Map<String, String> params = getLargeParams();
+            final HttpRequest request = new HttpRequest();
+            request.sendResumablePost(server.getUrl(), "upload-1", params, 8 * 1024);
+
+            Assert.assertEquals(getExpectedBody(params), new String(server.getUpload("upload-1"), "UTF-8"));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testResumablePostIsSentWithUrlConnection() throws Exception {
+        final ResumableUploadServer server = new ResumableUploadServer();
+        try {
+            final Map<String, String> params = getLargeParams();
+            final HttpRequest request = new HttpRequest();
+            request.setTransportType(HttpTransportType.HTTP_URL_CONNECTION);
+            request.sendResumablePost(server.getUrl(), "upload-3", params, 8 * 1024);
+
+            Assert.assertEquals(getExpectedBody(params), new String(server.getUpload("upload-3"), "UTF-8"));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testResumablePostResumesWhereTheServerStopped() throws Exception {
+        final ResumableUploadServer server = new ResumableUploadServer();
+        try {
+            final Map<String, String> params = getLargeParams();
+            final int chunkSize = 8 * 1024;
+            final HttpRequest request = new HttpRequest();
+            request.setMaxNrRetries(0);
+
+            server.failRequest(5);
+            try {
+                request.sendResumablePost(server.getUrl(), "upload-2", params, chunkSize);
+                Assert.fail("Should not be able to send all the chunks when one of them fails");
+            } catch (IOException e) {
+                // as expected.
+            }
+            request.sendResumablePost(server.getUrl(), "upload-2", params, chunkSize);
+
+            final String expected = getExpectedBody(params);
+            Assert.assertEquals(expected, new String(server.getUpload("upload-2"), "UTF-8"));
+            // Only the failed chunk has been sent twice.
+            Assert.assertEquals(expected.length() + chunkSize, server.getReceivedBytes());
+        } finally {
+            server.close();
+        }
+    }
+
+    private static Map<String, String> getLargeParams() {
+        final StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            log.append("Line ").append(i).append(" of the application log\n");
+        }
+        final Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put("REPORT_ID", "upload");
+        params.put("APPLICATION_LOG", log.toString());
+        return params;
+    }
+
+    private static String getExpectedBody(Map<String, String> params) throws Exception {
+        final StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (body.length() != 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(param.getKey(), "UTF-8")).append('=');
+            body.append(URLEncoder.encode(param.getValue(), "UTF-8"));
+        }
+        return body.toString();
+    }
 }
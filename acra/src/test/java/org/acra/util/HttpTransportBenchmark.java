@@ -0,0 +1,171 @@
+package org.acra.util;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.acra.HttpTransportType;
+import org.acra.log.NonAndroidLog;
+
+/**
+ * Responsible for comparing the latency and allocations of each {@link HttpTransportType} when posting reports.
+ * <p>
+ * Reports are posted one after the other to a {@link LoopbackHttpServer} which keeps connections alive, counting the
+ * connections opened while measuring.
+ * Allocations are those of the posting thread, measured when the JVM supports it. This is not run with the tests, run
+ * it with the test classpath:
+ * </p>
+ * <pre>
+ * java -cp &lt;test classpath&gt; org.acra.util.HttpTransportBenchmark [reports]
+ * </pre>
+ */
+public final class HttpTransportBenchmark {
+
+    private static final int DEFAULT_REPORTS = 500;
+
+    private static Object threadMXBean;
+    private static Method getThreadAllocatedBytes;
+
+    public static void main(String[] args) throws Exception {
+        final int reports = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REPORTS;
+        final NonAndroidLog log = new NonAndroidLog();
+        log.setLogLevel(NonAndroidLog.WARN);
+        HttpRequest.setLog(log);
+        initAllocationCounter();
+
+        final LoopbackHttpServer server = new LoopbackHttpServer("HttpTransportBenchmark-Server", true) {
+            @Override
+            protected Response handle(Map<String, String> headers, byte[] body) {
+                return new Response("200 OK", "OK");
+            }
+        };
+        try {
+            final Map<String, String> report = getReport();
+            System.out.println(String.format(Locale.US, "%d reports of %d fields, %s", reports, report.size(),
+                    getThreadAllocatedBytes == null ? "allocations not measured" : "allocations of the posting thread"));
+            System.out.println(String.format(Locale.US, "%-20s %-5s %10s %10s %10s %12s %12s", "transport", "gzip",
+                    "mean (us)", "p50 (us)", "p90 (us)", "alloc/report", "connections"));
+            for (final HttpTransportType transportType : HttpTransportType.values()) {
+                for (final boolean compress : new boolean[] { false, true }) {
+                    // Warm up the JIT and the connection pools, then measure.
+                    run(server, transportType, compress, report, Math.max(1, reports / 5));
+                    final Result result = run(server, transportType, compress, report, reports);
+                    System.out.println(String.format(Locale.US, "%-20s %-5s %10d %10d %10d %12s %12d", transportType,
+                            compress, result.mean() / 1000, result.percentile(50) / 1000,
+                            result.percentile(90) / 1000, result.allocatedBytes < 0 ? "n/a"
+                                    : Long.toString(result.allocatedBytes / reports), result.connections));
+                    HttpRequest.closeIdleConnections();
+                }
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    private static Result run(LoopbackHttpServer server, HttpTransportType transportType, boolean compress,
+            Map<String, String> report, int reports) throws IOException {
+        final HttpRequest request = new HttpRequest();
+        request.setTransportType(transportType);
+        request.setCompressBody(compress);
+        final URL url = server.getUrl();
+
+        final Result result = new Result(reports);
+        final int connections = server.getConnections();
+        final long allocatedBytes = getAllocatedBytes();
+        for (int i = 0; i < reports; i++) {
+            final long start = System.nanoTime();
+            request.sendPost(url, report);
+            result.durations[i] = System.nanoTime() - start;
+        }
+        result.allocatedBytes = allocatedBytes < 0 ? -1 : getAllocatedBytes() - allocatedBytes;
+        result.connections = server.getConnections() - connections;
+        return result;
+    }
+
+    /**
+     * @return A report of the usual size, with a long stack trace and logcat.
+     */
+    private static Map<String, String> getReport() {
+        final Map<String, String> report = new LinkedHashMap<String, String>();
+        report.put("REPORT_ID", "0f8fad5b-d9cb-469f-a165-70867728950e");
+        report.put("APP_VERSION_CODE", "42");
+        report.put("APP_VERSION_NAME", "4.2.0");
+        report.put("PACKAGE_NAME", "com.example.app");
+        report.put("PHONE_MODEL", "Nexus One");
+        report.put("ANDROID_VERSION", "2.3.6");
+        report.put("BRAND", "google");
+        report.put("TOTAL_MEM_SIZE", "206639104");
+        report.put("AVAILABLE_MEM_SIZE", "53346304");
+        final StringBuilder stackTrace = new StringBuilder("java.lang.NullPointerException\n");
+        for (int i = 0; i < 120; i++) {
+            stackTrace.append("\tat com.example.app.Component").append(i).append(".onEvent(Component").append(i)
+                    .append(".java:").append(100 + i).append(")\n");
+        }
+        report.put("STACK_TRACE", stackTrace.toString());
+        final StringBuilder logcat = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            logcat.append("01-01 12:00:").append(i % 60).append(".000 D/ActivityManager( 123): Event ").append(i)
+                    .append(" for pid=4567 uid=10042 gids={3003, 1015}\n");
+        }
+        report.put("LOGCAT", logcat.toString());
+        report.put("USER_COMMENT", "Crashed while saving a draft, \u00e9lan & co.");
+        return report;
+    }
+
+    private static void initAllocationCounter() {
+        // Not available on the Android API the tests compile against, nor on all JVMs.
+        try {
+            threadMXBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean")
+                    .invoke(null);
+            getThreadAllocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod(
+                    "getThreadAllocatedBytes", long.class);
+            getAllocatedBytes();
+        } catch (Exception e) {
+            threadMXBean = null;
+            getThreadAllocatedBytes = null;
+        }
+    }
+
+    /**
+     * @return Number of bytes allocated by the current thread, or -1 if it can't be measured.
+     */
+    private static long getAllocatedBytes() {
+        if (getThreadAllocatedBytes == null) {
+            return -1;
+        }
+        try {
+            return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static final class Result {
+
+        private final long[] durations;
+        private long allocatedBytes;
+        private int connections;
+
+        private Result(int reports) {
+            durations = new long[reports];
+        }
+
+        private long mean() {
+            long total = 0;
+            for (long duration : durations) {
+                total += duration;
+            }
+            return total / durations.length;
+        }
+
+        private long percentile(int percentile) {
+            final long[] sorted = durations.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.acra.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing LimitedInputStream.
+ */
+public class LimitedInputStreamTest {
+
+    private static InputStream getStream() {
+        return new ByteArrayInputStream("0123456789".getBytes());
+    }
+
+    @Test
+    public void testReadingStopsAtTheLimit() throws Exception {
+        final InputStream in = getStream();
+        final LimitedInputStream limited = new LimitedInputStream(in, 4);
+
+        final byte[] buffer = new byte[10];
+        Assert.assertEquals(4, limited.read(buffer, 0, buffer.length));
+        Assert.assertEquals("0123", new String(buffer, 0, 4));
+        Assert.assertEquals(-1, limited.read());
+        Assert.assertEquals(-1, limited.read(buffer, 0, buffer.length));
+        Assert.assertEquals(0, limited.getRemaining());
+        Assert.assertEquals('4', in.read());
+    }
+
+    @Test
+    public void testSkipRemainingPositionsTheStreamAtTheLimit() throws Exception {
+        final InputStream in = getStream();
+        final LimitedInputStream limited = new LimitedInputStream(in, 6);
+
+        Assert.assertEquals('0', limited.read());
+        limited.skipRemaining();
+        Assert.assertEquals(0, limited.getRemaining());
+        Assert.assertEquals('6', in.read());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testSkipRemainingFailsOnTruncatedStream() throws Exception {
+        new LimitedInputStream(getStream(), 20).skipRemaining();
+    }
+
+    @Test
+    public void testCloseDoesNotCloseTheUnderlyingStream() throws Exception {
+        final InputStream in = getStream();
+        final LimitedInputStream limited = new LimitedInputStream(in, 2);
+
+        limited.close();
+        Assert.assertEquals('0', in.read());
+    }
+}
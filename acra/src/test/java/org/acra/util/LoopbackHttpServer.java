@@ -0,0 +1,219 @@
+package org.acra.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Responsible for answering HTTP/1.1 posts on the loopback interface in tests and benchmarks.
+ * <p>
+ * Request bodies are accepted with a Content-Length or chunked, and read completely before being handled. Connections
+ * are either kept alive for the next request or closed after each response. Each connection is served by its own
+ * thread.
+ * </p>
+ */
+public abstract class LoopbackHttpServer implements Runnable {
+
+    /**
+     * Response to a request.
+     */
+    public static final class Response {
+
+        private final String status;
+        private final Map<String, String> headers = new LinkedHashMap<String, String>();
+        private final String body;
+
+        /**
+         * @param status    Status code and reason phrase, such as "200 OK".
+         * @param body      Text of the response.
+         */
+        public Response(String status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        /**
+         * @param name      Name of a header to add to the response.
+         * @param value     Value of the header.
+         * @return This response.
+         */
+        public Response setHeader(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private final boolean keepAlive;
+    private int connections;
+
+    /**
+     * @param name      Name of the server threads.
+     * @param keepAlive true to keep connections alive between requests, false to close them after each response.
+     */
+    protected LoopbackHttpServer(String name, boolean keepAlive) throws IOException {
+        this.keepAlive = keepAlive;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    /**
+     * @return URL to which requests are posted.
+     */
+    public URL getUrl() throws MalformedURLException {
+        return new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + "/report");
+    }
+
+    /**
+     * @return Number of connections accepted so far.
+     */
+    public synchronized int getConnections() {
+        return connections;
+    }
+
+    public void close() throws IOException, InterruptedException {
+        serverSocket.close();
+        thread.join();
+    }
+
+    /**
+     * Handles a request, on the thread of its connection.
+     *
+     * @param headers   Request headers, by lower case name.
+     * @param body      Request body, empty if there is none.
+     * @return Response to send.
+     */
+    protected abstract Response handle(Map<String, String> headers, byte[] body) throws IOException;
+
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                synchronized (this) {
+                    connections++;
+                }
+                final Thread connection = new Thread(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                }, thread.getName() + "-Connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                // Closed.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final OutputStream out = socket.getOutputStream();
+            while (serveRequest(in, out) && keepAlive) {
+                // Keep the connection alive for the next request.
+            }
+        } catch (IOException e) {
+            // Closed by the client, or a broken request.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    /**
+     * @return false if the client closed the connection.
+     */
+    private boolean serveRequest(InputStream in, OutputStream out) throws IOException {
+        final String requestLine = readLine(in);
+        if (requestLine == null) {
+            return false;
+        }
+        final Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while ((line = readLine(in)) != null && line.length() > 0) {
+            final int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), line.substring(colon + 1).trim());
+        }
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            int chunkSize;
+            while ((chunkSize = Integer.parseInt(readLine(in).split(";")[0].trim(), 16)) > 0) {
+                copy(in, body, chunkSize);
+                readLine(in);
+            }
+            // Trailers
+            while ((line = readLine(in)) != null && line.length() > 0) {
+                // Ignored.
+            }
+        } else if (headers.containsKey("content-length")) {
+            copy(in, body, Long.parseLong(headers.get("content-length")));
+        }
+
+        final Response response = handle(headers, body.toByteArray());
+        final byte[] content = response.body == null ? new byte[0] : response.body.getBytes("UTF-8");
+        final StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append("\r\n");
+        for (final Map.Entry<String, String> header : response.headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        head.append("Content-Length: ").append(content.length).append("\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+        // A single write, so that the response is not delayed by Nagle's algorithm.
+        final ByteArrayOutputStream message = new ByteArrayOutputStream(head.length() + content.length);
+        message.write(head.toString().getBytes("ISO-8859-1"));
+        message.write(content);
+        message.writeTo(out);
+        out.flush();
+        return true;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long count) throws IOException {
+        final byte[] buffer = new byte[8192];
+        while (count > 0) {
+            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            out.write(buffer, 0, read);
+            count -= read;
+        }
+    }
+
+    /**
+     * @return The line, or null if the stream ended before it.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
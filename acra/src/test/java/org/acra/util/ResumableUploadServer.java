@@ -0,0 +1,71 @@
+package org.acra.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Responsible for receiving resumable uploads in tests, as described in
+ * {@link HttpRequest#sendResumablePost(URL, String, Map, int)}.
+ * <p>
+ * Connections are closed after each request.
+ * </p>
+ */
+public final class ResumableUploadServer extends LoopbackHttpServer {
+
+    private final Map<String, ByteArrayOutputStream> uploads = new HashMap<String, ByteArrayOutputStream>();
+
+    private int requests;
+    private int receivedBytes;
+    private int failingRequest = -1;
+
+    public ResumableUploadServer() throws IOException {
+        super("ResumableUploadServer", false);
+    }
+
+    /**
+     * @param request   Number of the request, from 1, answered with an error instead of being handled.
+     */
+    public synchronized void failRequest(int request) {
+        failingRequest = request;
+    }
+
+    /**
+     * @param uploadId  Identifier of an upload.
+     * @return The bytes received for this upload, or null if nothing has been received.
+     */
+    public synchronized byte[] getUpload(String uploadId) {
+        final ByteArrayOutputStream upload = uploads.get(uploadId);
+        return upload == null ? null : upload.toByteArray();
+    }
+
+    /**
+     * @return Number of body bytes received, whether they have been kept or not.
+     */
+    public synchronized int getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    @Override
+    protected synchronized Response handle(Map<String, String> headers, byte[] body) throws IOException {
+        final String uploadId = headers.get(HttpRequest.HEADER_UPLOAD_ID.toLowerCase());
+        final long offset = Long.parseLong(headers.get(HttpRequest.HEADER_UPLOAD_OFFSET.toLowerCase()));
+        requests++;
+        receivedBytes += body.length;
+        if (requests == failingRequest) {
+            return new Response("503 Service Unavailable", null);
+        }
+        ByteArrayOutputStream upload = uploads.get(uploadId);
+        if (upload == null) {
+            upload = new ByteArrayOutputStream();
+            uploads.put(uploadId, upload);
+        }
+        if (offset == upload.size()) {
+            upload.write(body);
+        }
+        return new Response("200 OK", null).setHeader(HttpRequest.HEADER_UPLOAD_OFFSET,
+                Integer.toString(upload.size()));
+    }
+}
@@ -0,0 +1,44 @@
+package org.acra.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Responsible for testing TokenBucket.
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstIsLimitedToCapacity() {
+        final TokenBucket bucket = new TokenBucket(3, 60, 0);
+        Assert.assertTrue(bucket.tryConsume(1, 0));
+        Assert.assertTrue(bucket.tryConsume(1, 0));
+        Assert.assertTrue(bucket.tryConsume(1, 0));
+        Assert.assertFalse(bucket.tryConsume(1, 0));
+    }
+
+    @Test
+    public void testBucketIsRefilledOverTime() {
+        final TokenBucket bucket = new TokenBucket(1, 60, 0);
+        Assert.assertTrue(bucket.tryConsume(1, 0));
+        Assert.assertEquals(1000, bucket.getAvailableTime(1, 0));
+        Assert.assertFalse(bucket.tryConsume(1, 999));
+        Assert.assertTrue(bucket.tryConsume(1, 1000));
+    }
+
+    @Test
+    public void testAmountLargerThanCapacityLeavesBucketInDebt() {
+        final TokenBucket bucket = new TokenBucket(10, 60, 0);
+        Assert.assertTrue(bucket.tryConsume(30, 0));
+        Assert.assertEquals(-20, bucket.getTokens(), 0.001);
+        Assert.assertFalse(bucket.tryConsume(1, 20000));
+        Assert.assertTrue(bucket.tryConsume(1, 21000));
+    }
+
+    @Test
+    public void testRestoredStateIsKept() {
+        final TokenBucket bucket = new TokenBucket(5, 60, 0.5, 1000);
+        Assert.assertFalse(bucket.tryConsume(1, 1000));
+        Assert.assertTrue(bucket.tryConsume(1, 1500));
+    }
+}